@@ -9,6 +9,7 @@ import dev.scuffi.scripting.events.EventRegistry;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.loader.api.FabricLoader;
 
 import org.slf4j.Logger;
@@ -85,6 +86,9 @@ public class NotEnoughRecipes implements ModInitializer {
 		}
 		});
 		
+		// Apply hot-reloaded script changes at the tick boundary, on the server thread
+		ServerTickEvents.START_SERVER_TICK.register(server -> ScriptManager.onServerTick());
+		
 		// Shut down scripts when server stops
 		ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
 			try {
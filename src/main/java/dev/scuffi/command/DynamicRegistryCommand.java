@@ -623,7 +623,7 @@ public class DynamicRegistryCommand {
         source.sendSuccess(() -> Component.literal("=== Persisted Dynamic Entries ==="), false);
         
         // List items
-        var items = DynamicRegistryPersistence.loadItemDefinitions();
+        var items = DynamicRegistryPersistence.getItemDefinitions();
         if (items.isEmpty()) {
             source.sendSuccess(() -> Component.literal("Items: (none)"), false);
         } else {
@@ -651,7 +651,7 @@ public class DynamicRegistryCommand {
         }
         
         // List blocks
-        var blocks = DynamicRegistryPersistence.loadBlockDefinitions();
+        var blocks = DynamicRegistryPersistence.getBlockDefinitions();
         if (blocks.isEmpty()) {
             source.sendSuccess(() -> Component.literal("Blocks: (none)"), false);
         } else {
@@ -732,64 +732,67 @@ public class DynamicRegistryCommand {
             int blocksRegistered = 0;
             int blocksUpdated = 0;
             
-            // Process items
-            source.sendSuccess(() -> Component.literal("Processing " + items.size() + " items..."), false);
-            for (var itemDef : items) {
-                var itemId = net.minecraft.resources.Identifier.parse(NotEnoughRecipes.MOD_ID + ":" + itemDef.id);
-                
-                // Check if item already exists in registry
-                var existingItem = BuiltInRegistries.ITEM.getValue(itemId);
-                if (existingItem != null && existingItem != net.minecraft.world.item.Items.AIR) {
-                    // Item already exists - update its component data
-                    DynamicRegistryHelper.updateItemComponents(itemDef.id, itemDef.components);
-                    itemsUpdated++;
-                    source.sendSuccess(() -> Component.literal("  Updated components for: " + itemDef.id), false);
-                    NotEnoughRecipes.LOGGER.debug("Item {} already registered, updated components", itemId);
-                    continue;
-                }
-                
-                // Register the item (this will also load its resources)
-                try {
-                    DynamicRegistryHelper.registerDynamicItemFromDefinition(itemDef);
-                    itemsRegistered++;
-                    source.sendSuccess(() -> Component.literal("  Registered item: " + itemDef.id), false);
-                } catch (Exception e) {
-                    NotEnoughRecipes.LOGGER.error("Failed to register item: {}", itemDef.id, e);
-                    source.sendFailure(Component.literal("  Failed to register item: " + itemDef.id + " - " + e.getMessage()));
-                }
-            }
-            
-            // Process blocks
-            source.sendSuccess(() -> Component.literal("Processing " + blocks.size() + " blocks..."), false);
-            for (var blockDef : blocks) {
-                var blockId = net.minecraft.resources.Identifier.parse(NotEnoughRecipes.MOD_ID + ":" + blockDef.id);
-                
-                // Check if block already exists in registry
-                var existingBlock = BuiltInRegistries.BLOCK.getValue(blockId);
-                if (existingBlock != null && existingBlock != net.minecraft.world.level.block.Blocks.AIR) {
-                    // Block already exists - update its component data and drops
-                    DynamicRegistryHelper.updateBlockComponents(blockDef.id, blockDef.components);
+            // Register new entries in one batch, so the registries are unfrozen and frozen only once
+            try (var batch = DynamicRegistryHelper.batch()) {
+                // Process items
+                source.sendSuccess(() -> Component.literal("Processing " + items.size() + " items..."), false);
+                for (var itemDef : items) {
+                    var itemId = net.minecraft.resources.Identifier.parse(NotEnoughRecipes.MOD_ID + ":" + itemDef.id);
                     
-                    // Update drops if specified
-                    if (blockDef.drops != null && blockDef.drops.size() > 0) {
-                        java.util.List<DynamicRegistryHelper.BlockDrop> drops = DynamicRegistryHelper.parseDropsFromJson(blockDef.drops);
-                        DynamicRegistryHelper.updateBlockDrops(blockDef.id, drops);
+                    // Check if item already exists in registry
+                    var existingItem = BuiltInRegistries.ITEM.getValue(itemId);
+                    if (existingItem != null && existingItem != net.minecraft.world.item.Items.AIR) {
+                        // Item already exists - update its component data
+                        DynamicRegistryHelper.updateItemComponents(itemDef.id, itemDef.components);
+                        itemsUpdated++;
+                        source.sendSuccess(() -> Component.literal("  Updated components for: " + itemDef.id), false);
+                        NotEnoughRecipes.LOGGER.debug("Item {} already registered, updated components", itemId);
+                        continue;
                     }
                     
-                    blocksUpdated++;
-                    source.sendSuccess(() -> Component.literal("  Updated components for: " + blockDef.id), false);
-                    NotEnoughRecipes.LOGGER.debug("Block {} already registered, updated components and drops", blockId);
-                    continue;
+                    // Register the item (this will also load its resources)
+                    try {
+                        DynamicRegistryHelper.registerDynamicItemFromDefinition(itemDef);
+                        itemsRegistered++;
+                        source.sendSuccess(() -> Component.literal("  Registered item: " + itemDef.id), false);
+                    } catch (Exception e) {
+                        NotEnoughRecipes.LOGGER.error("Failed to register item: {}", itemDef.id, e);
+                        source.sendFailure(Component.literal("  Failed to register item: " + itemDef.id + " - " + e.getMessage()));
+                    }
                 }
                 
-                // Register the block (this will also load its resources)
-                try {
-                    DynamicRegistryHelper.registerDynamicBlockFromDefinition(blockDef);
-                    blocksRegistered++;
-                    source.sendSuccess(() -> Component.literal("  Registered block: " + blockDef.id), false);
-                } catch (Exception e) {
-                    NotEnoughRecipes.LOGGER.error("Failed to register block: {}", blockDef.id, e);
-                    source.sendFailure(Component.literal("  Failed to register block: " + blockDef.id + " - " + e.getMessage()));
+                // Process blocks
+                source.sendSuccess(() -> Component.literal("Processing " + blocks.size() + " blocks..."), false);
+                for (var blockDef : blocks) {
+                    var blockId = net.minecraft.resources.Identifier.parse(NotEnoughRecipes.MOD_ID + ":" + blockDef.id);
+                    
+                    // Check if block already exists in registry
+                    var existingBlock = BuiltInRegistries.BLOCK.getValue(blockId);
+                    if (existingBlock != null && existingBlock != net.minecraft.world.level.block.Blocks.AIR) {
+                        // Block already exists - update its component data and drops
+                        DynamicRegistryHelper.updateBlockComponents(blockDef.id, blockDef.components);
+                        
+                        // Update drops if specified
+                        if (blockDef.drops != null && blockDef.drops.size() > 0) {
+                            java.util.List<DynamicRegistryHelper.BlockDrop> drops = DynamicRegistryHelper.parseDropsFromJson(blockDef.drops);
+                            DynamicRegistryHelper.updateBlockDrops(blockDef.id, drops);
+                        }
+                        
+                        blocksUpdated++;
+                        source.sendSuccess(() -> Component.literal("  Updated components for: " + blockDef.id), false);
+                        NotEnoughRecipes.LOGGER.debug("Block {} already registered, updated components and drops", blockId);
+                        continue;
+                    }
+                    
+                    // Register the block (this will also load its resources)
+                    try {
+                        DynamicRegistryHelper.registerDynamicBlockFromDefinition(blockDef);
+                        blocksRegistered++;
+                        source.sendSuccess(() -> Component.literal("  Registered block: " + blockDef.id), false);
+                    } catch (Exception e) {
+                        NotEnoughRecipes.LOGGER.error("Failed to register block: {}", blockDef.id, e);
+                        source.sendFailure(Component.literal("  Failed to register block: " + blockDef.id + " - " + e.getMessage()));
+                    }
                 }
             }
             
@@ -4,13 +4,19 @@ import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.context.CommandContext;
 import dev.scuffi.scripting.ScriptManager;
 import dev.scuffi.scripting.events.EventBridge;
+import dev.scuffi.scripting.events.EventHandler;
+import dev.scuffi.scripting.events.ScriptProfile;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
 import net.minecraft.network.chat.Component;
 
+import java.util.Comparator;
+import java.util.List;
+
 /**
  * Command for managing JavaScript scripts.
  * Provides /ner reload to hot-reload all scripts.
+ * Provides /ner scripts profile to show how much time each script's handlers use.
  */
 public class ScriptCommand {
     
@@ -19,7 +25,9 @@ public class ScriptCommand {
                 .then(Commands.literal("reload")
                         .executes(ScriptCommand::reloadScripts))
                 .then(Commands.literal("scripts")
-                        .executes(ScriptCommand::scriptStats)));
+                        .executes(ScriptCommand::scriptStats)
+                        .then(Commands.literal("profile")
+                                .executes(ScriptCommand::scriptProfile))));
     }
     
     /**
@@ -88,4 +96,51 @@ public class ScriptCommand {
             return 0;
         }
     }
+    
+    /**
+     * Shows time spent in each script's event handlers, slowest first.
+     */
+    private static int scriptProfile(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        
+        try {
+            EventBridge bridge = EventBridge.getInstance();
+            
+            List<ScriptProfile> profiles = bridge.getScriptProfiles();
+            if (profiles.isEmpty()) {
+                source.sendSuccess(() -> Component.literal("§7No event handlers registered"), false);
+                return 1;
+            }
+            profiles.sort(Comparator.comparingLong(ScriptProfile::getTotalNanos).reversed());
+            
+            source.sendSuccess(() -> Component.literal("§6=== Script Profile ==="), false);
+            for (ScriptProfile profile : profiles) {
+                source.sendSuccess(() -> Component.literal(String.format(
+                        "§e%s: §a%d call(s)§7, §a%.1f ms §7total, §a%.2f ms §7max/tick, §c%d §7violation(s), §c%d §7skipped",
+                        profile.getScriptName(), profile.getCalls(), toMillis(profile.getTotalNanos()),
+                        toMillis(profile.getMaxTickNanos()), profile.getViolations(), profile.getSkippedCalls())), false);
+            }
+            
+            List<EventHandler> handlers = bridge.getAllHandlers();
+            handlers.sort(Comparator.comparingLong(EventHandler::getTotalNanos).reversed());
+            
+            source.sendSuccess(() -> Component.literal("§6Handlers:"), false);
+            for (EventHandler handler : handlers.subList(0, Math.min(10, handlers.size()))) {
+                double avgMicros = handler.getCalls() > 0 ? handler.getTotalNanos() / 1000.0 / handler.getCalls() : 0;
+                source.sendSuccess(() -> Component.literal(String.format(
+                        "  §e%s §7(%s): §a%d call(s)§7, avg §a%.1f µs§7, max §a%.2f ms%s",
+                        handler.getEventName(), handler.getScriptName(), handler.getCalls(), avgMicros,
+                        toMillis(handler.getMaxNanos()), handler.isDisabled() ? " §c[disabled]" : "")), false);
+            }
+            
+            return 1;
+        } catch (Exception e) {
+            source.sendFailure(Component.literal("§cFailed to get script profile: " + e.getMessage()));
+            return 0;
+        }
+    }
+    
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
 }
@@ -0,0 +1,19 @@
+package dev.scuffi.mixin;
+
+import net.minecraft.core.component.DataComponentMap;
+import net.minecraft.world.item.Item;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Mutable;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Mixin accessor to replace the default components of an Item.
+ * This allows the JSON components of dynamic items to be baked into the item itself.
+ */
+@Mixin(Item.class)
+public interface ItemAccessor {
+    
+    @Mutable
+    @Accessor("components")
+    void setComponents(DataComponentMap components);
+}
@@ -0,0 +1,230 @@
+package dev.scuffi.registry;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dev.scuffi.NotEnoughRecipes;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only log of changes to the persisted definitions, one JSON object per line.
+ * 
+ * Appending a line costs the same however many definitions exist. When enough lines have built
+ * up, the log is compacted: the current definitions are written to the definition files and
+ * the lines they contain are dropped. Compaction first moves the log aside, so changes made
+ * while the files are written go to a fresh log, and the old one is only deleted once the files
+ * are safely on disk. On startup the files are read and then both logs are replayed on top.
+ */
+final class DefinitionJournal {
+    
+    /**
+     * When appended lines are forced to disk.
+     */
+    enum SyncPolicy {
+        /** After every line: nothing is lost in a crash. */
+        ALWAYS,
+        /** Within a second of a line: at most the last second is lost in a crash. */
+        INTERVAL,
+        /** Left to the operating system. */
+        NEVER;
+        
+        static SyncPolicy parse(String name) {
+            for (SyncPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(name)) {
+                    return policy;
+                }
+            }
+            NotEnoughRecipes.LOGGER.warn("Unknown journal fsync policy '{}', using 'always'", name);
+            return ALWAYS;
+        }
+    }
+    
+    private static final long SYNC_INTERVAL_MS = 1000;
+    
+    private final Path file;
+    private final Path compactingFile;
+    private final SyncPolicy syncPolicy;
+    private final int compactAfter;
+    private final Runnable compaction;
+    
+    private FileChannel channel;
+    private int entries;
+    private boolean syncScheduled = false;
+    private boolean compactionScheduled = false;
+    
+    /**
+     * @param file The log file
+     * @param syncPolicy When appended lines are forced to disk
+     * @param compactAfter Lines after which compaction is scheduled
+     * @param compaction Writes the definition files and calls {@link #rotate} and {@link #finishCompaction}
+     */
+    DefinitionJournal(Path file, SyncPolicy syncPolicy, int compactAfter, Runnable compaction) {
+        this.file = file;
+        this.compactingFile = compactingFileOf(file);
+        this.syncPolicy = syncPolicy;
+        this.compactAfter = Math.max(1, compactAfter);
+        this.compaction = compaction;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "NER-Registry-Journal"));
+    }
+    
+    /**
+     * Checks if there's a log at the given path, or one moved aside for a compaction that didn't finish.
+     */
+    static boolean exists(Path file) {
+        return Files.exists(file) || Files.exists(compactingFileOf(file));
+    }
+    
+    private static Path compactingFileOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".compacting");
+    }
+    
+    /**
+     * Reads every line not yet compacted, oldest first. Lines that can't be parsed,
+     * such as one cut short by a crash, are skipped.
+     */
+    List<JsonObject> read() {
+        List<JsonObject> read = new ArrayList<>();
+        readInto(compactingFile, read);
+        readInto(file, read);
+        return read;
+    }
+    
+    private void readInto(Path path, List<JsonObject> read) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    read.add(JsonParser.parseString(line).getAsJsonObject());
+                } catch (Exception e) {
+                    NotEnoughRecipes.LOGGER.warn("Skipping unreadable line {} of {}: {}", lineNumber, path.getFileName(), e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            NotEnoughRecipes.LOGGER.error("Failed to read journal {}", path, e);
+        }
+    }
+    
+    boolean isEmpty() {
+        return !Files.exists(file) && !Files.exists(compactingFile);
+    }
+    
+    /**
+     * Appends one change. Called with {@link DefinitionStore#LOCK} held, so lines are in change order.
+     */
+    synchronized void append(JsonObject entry) {
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            
+            ByteBuffer line = ByteBuffer.wrap((entry + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            
+            switch (syncPolicy) {
+                case ALWAYS -> channel.force(false);
+                case INTERVAL -> scheduleSync();
+                case NEVER -> {}
+            }
+        } catch (IOException e) {
+            NotEnoughRecipes.LOGGER.error("Failed to append to journal {}", file, e);
+            return;
+        }
+        
+        if (++entries >= compactAfter) {
+            scheduleCompaction();
+        }
+    }
+    
+    /**
+     * Schedules a compaction on the background writer, if one isn't pending already.
+     */
+    synchronized void scheduleCompaction() {
+        if (!compactionScheduled) {
+            compactionScheduled = true;
+            DefinitionStore.WRITER.execute(compaction);
+        }
+    }
+    
+    /**
+     * Moves the log aside for compaction, so new lines start a fresh log.
+     * Called with {@link DefinitionStore#LOCK} held, after taking the snapshot that will be written.
+     */
+    synchronized void rotate() throws IOException {
+        compactionScheduled = false;
+        closeChannel();
+        entries = 0;
+        
+        if (!Files.exists(file)) {
+            return;
+        }
+        if (Files.exists(compactingFile)) {
+            // An earlier compaction didn't finish; keep its lines and add ours after them
+            Files.write(compactingFile, Files.readAllBytes(file), StandardOpenOption.APPEND);
+            Files.delete(file);
+        } else {
+            Files.move(file, compactingFile);
+        }
+    }
+    
+    /**
+     * Drops the lines moved aside by {@link #rotate}, once the snapshot is written.
+     */
+    void finishCompaction() throws IOException {
+        Files.deleteIfExists(compactingFile);
+    }
+    
+    synchronized void close() {
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            NotEnoughRecipes.LOGGER.warn("Failed to close journal {}: {}", file, e.getMessage());
+        }
+    }
+    
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+        }
+    }
+    
+    private void scheduleSync() {
+        if (!syncScheduled) {
+            syncScheduled = true;
+            DefinitionStore.WRITER.schedule(this::sync, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private synchronized void sync() {
+        syncScheduled = false;
+        try {
+            if (channel != null) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            NotEnoughRecipes.LOGGER.warn("Failed to sync journal {}: {}", file, e.getMessage());
+        }
+    }
+}
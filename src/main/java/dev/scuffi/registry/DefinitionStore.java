@@ -0,0 +1,229 @@
+package dev.scuffi.registry;
+
+import dev.scuffi.NotEnoughRecipes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * In-memory copy of a persisted definitions file, indexed by id.
+ * 
+ * The file is read once, on first use, and the store is authoritative from then on: saves and
+ * removals only update memory and mark the store dirty. The file is rewritten in the background
+ * a short while later, so a burst of saves costs one write instead of one per save. Pending
+ * writes are flushed before the file is re-read and when the JVM shuts down.
+ * 
+ * With a {@link ChangeLog} (journal mode) each change is handed to the log as it's made
+ * instead, and the file is only written when the log is compacted.
+ */
+final class DefinitionStore<T> {
+    
+    /**
+     * Receives every change to a store as it's made.
+     */
+    interface ChangeLog<T> {
+        void put(T definition);
+        
+        void remove(String id);
+        
+        void clear();
+    }
+    
+    private static final long FLUSH_DELAY_MS = 1000;
+    
+    // Guards the contents of every store, so a change log sees the changes of all stores in order
+    static final Object LOCK = new Object();
+    
+    // Background thread for write-behind and journal maintenance
+    static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "NER-Registry-Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final String name;
+    private final Function<T, String> idOf;
+    private final Supplier<List<T>> reader;
+    private final Predicate<List<T>> writer;
+    
+    // Held while writing, so writes reach the file in the order their snapshots were taken
+    private final Object writeLock = new Object();
+    
+    private final Map<String, T> definitions = new LinkedHashMap<>();
+    private ChangeLog<T> changeLog; // Null to write the whole file back in the background
+    private boolean loaded = false;
+    private boolean dirty = false;
+    private boolean flushScheduled = false;
+    
+    /**
+     * @param name What's stored, for logging
+     * @param idOf Gets the id of a definition
+     * @param reader Reads all definitions from disk
+     * @param writer Writes all definitions to disk, returning false if that failed
+     */
+    DefinitionStore(String name, Function<T, String> idOf, Supplier<List<T>> reader, Predicate<List<T>> writer) {
+        this.name = name;
+        this.idOf = idOf;
+        this.reader = reader;
+        this.writer = writer;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "NER-Registry-Flush"));
+    }
+    
+    /**
+     * Sends further changes to a change log instead of writing the file back.
+     */
+    void useChangeLog(ChangeLog<T> changeLog) {
+        synchronized (LOCK) {
+            this.changeLog = changeLog;
+        }
+    }
+    
+    /**
+     * Gets all definitions, in the order they were first saved.
+     */
+    List<T> getAll() {
+        synchronized (LOCK) {
+            ensureLoaded();
+            return new ArrayList<>(definitions.values());
+        }
+    }
+    
+    int size() {
+        synchronized (LOCK) {
+            ensureLoaded();
+            return definitions.size();
+        }
+    }
+    
+    /**
+     * Adds a definition, or replaces the one with the same id.
+     */
+    void put(T definition) {
+        synchronized (LOCK) {
+            ensureLoaded();
+            definitions.put(idOf.apply(definition), definition);
+            if (changeLog != null) {
+                changeLog.put(definition);
+            } else {
+                markDirty();
+            }
+        }
+    }
+    
+    /**
+     * Removes a definition, returning false if there was none with the id.
+     */
+    boolean remove(String id) {
+        synchronized (LOCK) {
+            ensureLoaded();
+            if (definitions.remove(id) == null) {
+                return false;
+            }
+            if (changeLog != null) {
+                changeLog.remove(id);
+            } else {
+                markDirty();
+            }
+            return true;
+        }
+    }
+    
+    void clear() {
+        synchronized (LOCK) {
+            loaded = true;
+            definitions.clear();
+            if (changeLog != null) {
+                changeLog.clear();
+            } else {
+                markDirty();
+            }
+        }
+    }
+    
+    /**
+     * Writes definitions to the file right away, returning false if that failed.
+     */
+    boolean write(List<T> snapshot) {
+        synchronized (writeLock) {
+            return writer.test(snapshot);
+        }
+    }
+    
+    /**
+     * Writes pending changes, then replaces the store with what's on disk.
+     * Picks up edits made to the file by hand. If the pending changes can't be written, the
+     * file is out of date, so it isn't read and the store keeps what's in memory.
+     */
+    List<T> reload() {
+        if (!flush()) {
+            NotEnoughRecipes.LOGGER.error("Failed to save persisted {}, keeping them in memory instead of reloading", name);
+            return getAll();
+        }
+        synchronized (LOCK) {
+            // Read under the lock, so no change or journal rotation lands halfway through the read
+            List<T> read = reader.get();
+            definitions.clear();
+            putAll(read);
+            loaded = true;
+            return new ArrayList<>(definitions.values());
+        }
+    }
+    
+    /**
+     * Writes pending changes now instead of waiting for the background write.
+     * Returns false if they couldn't be written.
+     */
+    boolean flush() {
+        synchronized (writeLock) {
+            List<T> snapshot;
+            synchronized (LOCK) {
+                flushScheduled = false;
+                if (!dirty) {
+                    return true;
+                }
+                dirty = false;
+                snapshot = new ArrayList<>(definitions.values());
+            }
+            
+            if (!writer.test(snapshot)) {
+                // Keep the changes and try again with the next save
+                synchronized (LOCK) {
+                    dirty = true;
+                }
+                return false;
+            }
+            return true;
+        }
+    }
+    
+    private void ensureLoaded() {
+        if (!loaded) {
+            putAll(reader.get());
+            loaded = true;
+            NotEnoughRecipes.LOGGER.debug("Loaded {} persisted {}", definitions.size(), name);
+        }
+    }
+    
+    private void putAll(Collection<T> read) {
+        for (T definition : read) {
+            definitions.put(idOf.apply(definition), definition);
+        }
+    }
+    
+    private void markDirty() {
+        dirty = true;
+        if (!flushScheduled) {
+            flushScheduled = true;
+            WRITER.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -2,12 +2,17 @@ package dev.scuffi.registry;
 
 import dev.scuffi.NotEnoughRecipes;
 import dev.scuffi.mixin.HolderReferenceAccessor;
+import dev.scuffi.mixin.ItemAccessor;
 import dev.scuffi.mixin.MappedRegistryAccessor;
 import dev.scuffi.mixin.MappedRegistryIntrusive;
 import dev.scuffi.resource.DynamicResourceLoader;
 import net.minecraft.core.Holder;
 import net.minecraft.core.MappedRegistry;
 import net.minecraft.core.Registry;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.core.component.DataComponentMap;
+import net.minecraft.core.component.DataComponentPatch;
+import net.minecraft.core.component.PatchedDataComponentMap;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.Identifier;
 import net.minecraft.resources.ResourceKey;
@@ -30,6 +35,8 @@ import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Helper class to dynamically unfreeze registries and register new entries at runtime.
@@ -48,9 +55,32 @@ public class DynamicRegistryHelper {
     private static final Map<String, com.google.gson.JsonObject> itemComponentObjects = new HashMap<>();
     private static final Map<String, com.google.gson.JsonObject> blockComponentObjects = new HashMap<>();
     
+    // Component JSON compiled to a patch, keyed by item ID. Compiled on first use against the
+    // server's registries and dropped when the components or the server change
+    private static final Map<String, DataComponentPatch> compiledComponents = new ConcurrentHashMap<>();
+    private static volatile net.minecraft.core.HolderLookup.Provider compiledFor;
+    // Set while registry access is missing, so that is only logged once
+    private static volatile boolean missingRegistryAccess;
+    
+    // Default components of dynamic items as registered, before any JSON components were baked in
+    private static final Map<String, DataComponentMap> registeredComponents = new ConcurrentHashMap<>();
+    // Items whose JSON components are baked into their default components
+    private static final Set<String> bakedComponents = ConcurrentHashMap.newKeySet();
+    // Built-in registries only, so baked components never hold entries of a particular server
+    private static final RegistryAccess STATIC_REGISTRIES = RegistryAccess.fromRegistryOfRegistries(BuiltInRegistries.REGISTRY);
+    
     // Store block drop definitions (keyed by block ID)
     private static final Map<String, List<BlockDrop>> blockDrops = new HashMap<>();
     
+    // Item -> interned NER item id, or NOT_NER_ITEM for items from other namespaces.
+    // Items don't override equals, so this is an identity map
+    private static final Map<Item, String> nerItemIds = new ConcurrentHashMap<>();
+    private static final String NOT_NER_ITEM = "";
+    
+    // Open registration batches, and whether one of them has resources waiting to be rebuilt
+    private static int batchDepth = 0;
+    private static boolean resourcePackDirty = false;
+    
     /**
      * Represents a custom drop for a block.
      * 
@@ -132,6 +162,72 @@ public class DynamicRegistryHelper {
         return true; // Assume frozen if we can't check
     }
     
+    /**
+     * Starts a registration batch. Use it with try-with-resources around many registrations:
+     * <pre>
+     * try (var batch = DynamicRegistryHelper.batch()) {
+     *     definitions.forEach(DynamicRegistryHelper::registerDynamicItemFromDefinition);
+     * }
+     * </pre>
+     * The block and item registries are unfrozen once when the batch starts and frozen again
+     * once when it's closed, instead of once per registration, and the resource pack is rebuilt
+     * once at the end instead of for every texture. Batches can be nested.
+     */
+    public static RegistrationBatch batch() {
+        return new RegistrationBatch();
+    }
+    
+    /**
+     * An open registration batch, see {@link #batch()}.
+     */
+    public static final class RegistrationBatch implements AutoCloseable {
+        private final boolean blockWasFrozen;
+        private final boolean itemWasFrozen;
+        private boolean closed = false;
+        
+        private RegistrationBatch() {
+            blockWasFrozen = isRegistryFrozen(BuiltInRegistries.BLOCK);
+            itemWasFrozen = isRegistryFrozen(BuiltInRegistries.ITEM);
+            batchDepth++;
+            
+            // Registrations inside the batch see unfrozen registries and leave them that way
+            unfreezeRegistry(BuiltInRegistries.BLOCK);
+            unfreezeRegistry(BuiltInRegistries.ITEM);
+        }
+        
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            
+            if (--batchDepth == 0 && resourcePackDirty) {
+                resourcePackDirty = false;
+                DynamicResourceLoader.getResourcePack().rebuild();
+            }
+            
+            // Only re-freeze what was frozen before, nested batches leave it to the outer one
+            if (blockWasFrozen) {
+                freezeRegistry(BuiltInRegistries.BLOCK);
+            }
+            if (itemWasFrozen) {
+                freezeRegistry(BuiltInRegistries.ITEM);
+            }
+        }
+    }
+    
+    /**
+     * Rebuilds the resource pack after resources were added, or at the end of the open batch.
+     */
+    private static void rebuildResourcePack() {
+        if (batchDepth > 0) {
+            resourcePackDirty = true;
+        } else {
+            DynamicResourceLoader.getResourcePack().rebuild();
+        }
+    }
+    
     /**
      * Registers a new dynamic block and its corresponding item.
      * Returns the registered block.
@@ -185,7 +281,7 @@ public class DynamicRegistryHelper {
                 // This creates: block model, item model, blockstate, and item definition
                 DynamicResourceLoader.addCustomBlockModel(blockId, textureName);
                 // Rebuild the resource pack
-                DynamicResourceLoader.getResourcePack().rebuild();
+                rebuildResourcePack();
                 NotEnoughRecipes.LOGGER.info("Loaded texture '{}' for block '{}'", textureName, blockId);
             } else {
                 NotEnoughRecipes.LOGGER.warn("Texture '{}' not found, block will have missing texture", textureName);
@@ -235,6 +331,7 @@ public class DynamicRegistryHelper {
             // Create and register the block item
             BlockItem blockItem = new BlockItem(block, itemProperties);
             Registry.register(BuiltInRegistries.ITEM, itemKey, blockItem);
+            trackNerItem(blockItem, blockLocation.getPath());
             NotEnoughRecipes.LOGGER.info("Successfully registered block item: {}", blockLocation);
             
             // IMPORTANT: Bind empty tags to the item holder as well
@@ -312,7 +409,7 @@ public class DynamicRegistryHelper {
                 // Update the model to use the correct texture
                 DynamicResourceLoader.addCustomItemModel(itemId, textureName);
                 // Rebuild the resource pack
-                DynamicResourceLoader.getResourcePack().rebuild();
+                rebuildResourcePack();
                 NotEnoughRecipes.LOGGER.info("Loaded texture '{}' for item '{}'", textureName, itemId);
             } else {
                 NotEnoughRecipes.LOGGER.warn("Texture '{}' not found, item will have missing texture", textureName);
@@ -344,6 +441,7 @@ public class DynamicRegistryHelper {
             
             // Register the item
             Registry.register(BuiltInRegistries.ITEM, itemKey, item);
+            trackNerItem(item, itemId);
             NotEnoughRecipes.LOGGER.info("Successfully registered item: {}", itemLocation);
             
             // IMPORTANT: Bind empty tags to the holder to prevent "Tags not bound" crash
@@ -365,6 +463,25 @@ public class DynamicRegistryHelper {
         }
     }
     
+    private static void trackNerItem(Item item, String itemId) {
+        nerItemIds.put(item, itemId.intern());
+    }
+    
+    /**
+     * Gets the NER item id (the path of its registry key) of an item, or null if it isn't an NER item.
+     * Items registered here are known up front; any other item is resolved through the
+     * registry once and remembered, so repeated checks are a single identity lookup.
+     */
+    public static String getNerItemId(Item item) {
+        String itemId = nerItemIds.get(item);
+        if (itemId == null) {
+            Identifier key = BuiltInRegistries.ITEM.getKey(item);
+            itemId = key.getNamespace().equals(NotEnoughRecipes.MOD_ID) ? key.getPath().intern() : NOT_NER_ITEM;
+            nerItemIds.put(item, itemId);
+        }
+        return itemId == NOT_NER_ITEM ? null : itemId;
+    }
+    
     /**
      * Gets registry statistics for debugging.
      */
@@ -397,7 +514,7 @@ public class DynamicRegistryHelper {
             if (hasTexture) {
                 DynamicResourceLoader.loadModel("item", definition.id);
                 DynamicResourceLoader.addCustomItemModel(definition.id, definition.texture);
-                DynamicResourceLoader.getResourcePack().rebuild();
+                rebuildResourcePack();
                 NotEnoughRecipes.LOGGER.info("Loaded texture '{}' for item '{}'", definition.texture, definition.id);
             } else {
                 NotEnoughRecipes.LOGGER.warn("Texture '{}' not found for item '{}'", definition.texture, definition.id);
@@ -433,6 +550,7 @@ public class DynamicRegistryHelper {
             // Create and register the item
             Item item = new Item(itemProperties);
             Registry.register(BuiltInRegistries.ITEM, itemKey, item);
+            trackNerItem(item, definition.id);
             NotEnoughRecipes.LOGGER.info("Successfully registered item: {}", itemLocation);
             
             bindEmptyTags(BuiltInRegistries.ITEM, item);
@@ -444,9 +562,10 @@ public class DynamicRegistryHelper {
                 NotEnoughRecipes.LOGGER.info("Bound {} tags to item '{}': {}", tags.size(), definition.id, tags);
             }
             
-            // Store the component JSON object for later application to ItemStacks
+            // Store the component JSON object and bake it into the item where possible
             if (definition.components != null && !definition.components.isEmpty()) {
                 itemComponentObjects.put(definition.id, definition.components);
+                bakeComponents(item, definition.id, definition.components);
                 NotEnoughRecipes.LOGGER.info("Stored components for item '{}'", definition.id);
             }
             
@@ -470,7 +589,7 @@ public class DynamicRegistryHelper {
             boolean hasTexture = DynamicResourceLoader.loadTexture("block", definition.texture);
             if (hasTexture) {
                 DynamicResourceLoader.addCustomBlockModel(definition.id, definition.texture);
-                DynamicResourceLoader.getResourcePack().rebuild();
+                rebuildResourcePack();
                 NotEnoughRecipes.LOGGER.info("Loaded texture '{}' for block '{}'", definition.texture, definition.id);
             } else {
                 NotEnoughRecipes.LOGGER.warn("Texture '{}' not found for block '{}'", definition.texture, definition.id);
@@ -533,13 +652,15 @@ public class DynamicRegistryHelper {
             // Create and register the block item
             BlockItem blockItem = new BlockItem(block, itemProperties);
             Registry.register(BuiltInRegistries.ITEM, itemKey, blockItem);
+            trackNerItem(blockItem, blockLocation.getPath());
             NotEnoughRecipes.LOGGER.info("Successfully registered block item: {}", blockLocation);
             
             bindEmptyTags(BuiltInRegistries.ITEM, blockItem);
             
-            // Store the component JSON object for later application to ItemStacks
+            // Store the component JSON object and bake it into the block item where possible
             if (definition.components != null && !definition.components.isEmpty()) {
                 blockComponentObjects.put(definition.id, definition.components);
+                bakeComponents(blockItem, definition.id, definition.components);
                 NotEnoughRecipes.LOGGER.info("Stored components for block '{}'", definition.id);
             }
             
@@ -636,6 +757,8 @@ public class DynamicRegistryHelper {
      * This allows reloading component data from JSON without re-registering the item.
      */
     public static void updateItemComponents(String itemId, com.google.gson.JsonObject components) {
+        compiledComponents.remove(itemId);
+        rebakeComponents(itemId, components);
         if (components != null && !components.isEmpty()) {
             itemComponentObjects.put(itemId, components);
             NotEnoughRecipes.LOGGER.info("Updated components for item '{}'", itemId);
@@ -650,6 +773,8 @@ public class DynamicRegistryHelper {
      * This allows reloading component data from JSON without re-registering the block.
      */
     public static void updateBlockComponents(String blockId, com.google.gson.JsonObject components) {
+        compiledComponents.remove(blockId);
+        rebakeComponents(blockId, components);
         if (components != null && !components.isEmpty()) {
             blockComponentObjects.put(blockId, components);
             NotEnoughRecipes.LOGGER.info("Updated components for block '{}'", blockId);
@@ -661,36 +786,116 @@ public class DynamicRegistryHelper {
     
     /**
      * Creates an ItemStack for a dynamic item with its stored components applied.
-     * Converts JSON components to SNBT format and uses Minecraft's ItemParser.
+     * The components are compiled to a {@link DataComponentPatch} once per item, so creating
+     * a stack doesn't build or parse any SNBT.
      * 
      * @param item The item to create a stack for
      * @param count Number of items in the stack
      * @return ItemStack with components applied
      */
     public static ItemStack createItemStack(Item item, int count) {
-        ItemStack stack = new ItemStack(item, count);
+        String itemId = getNerItemId(item);
+        DataComponentPatch patch = itemId != null ? getComponentPatch(item, itemId) : DataComponentPatch.EMPTY;
+        if (patch.isEmpty()) {
+            return new ItemStack(item, count);
+        }
+        return new ItemStack(BuiltInRegistries.ITEM.wrapAsHolder(item), count, patch);
+    }
+    
+    /**
+     * Gets the compiled components of a dynamic item, compiling them on first use.
+     */
+    private static DataComponentPatch getComponentPatch(Item item, String itemId) {
+        // Most items have nothing to compile, so they don't need registry access at all.
+        // Baked components are already part of the item
+        com.google.gson.JsonObject componentObj = getStoredComponents(itemId);
+        if (componentObj == null || bakedComponents.contains(itemId)) {
+            return DataComponentPatch.EMPTY;
+        }
         
-        // Get the item's ID
-        var itemId = BuiltInRegistries.ITEM.getKey(item);
-        if (itemId != null && itemId.getNamespace().equals(NotEnoughRecipes.MOD_ID)) {
-            String path = itemId.getPath();
-            
-            // Get stored component JSON object (item components take priority)
-            com.google.gson.JsonObject componentObj = itemComponentObjects.get(path);
-            if (componentObj == null || componentObj.isEmpty()) {
-                componentObj = blockComponentObjects.get(path);
+        // Patches hold registry entries (enchantments etc.) of the server they were compiled for
+        net.minecraft.core.HolderLookup.Provider registryAccess = getRegistryAccess();
+        if (registryAccess != compiledFor) {
+            compiledComponents.clear();
+            compiledFor = registryAccess;
+        }
+        
+        DataComponentPatch patch = compiledComponents.get(itemId);
+        if (patch == null) {
+            patch = compileComponents(item, itemId, componentObj, registryAccess);
+            // Without registries nothing could be compiled, so try again once a server is running
+            if (registryAccess != null) {
+                compiledComponents.put(itemId, patch);
             }
-            
-            // Convert JSON to SNBT and apply components
-            if (componentObj != null && !componentObj.isEmpty()) {
-                String componentString = convertJsonComponentsToSNBT(componentObj);
-                if (componentString != null && !componentString.isEmpty()) {
-                    applyComponentsFromString(stack, componentString);
-                }
+        }
+        return patch;
+    }
+    
+    /**
+     * Gets the JSON components stored for a dynamic item, or null if it has none.
+     * Item components take priority over those of the block it places.
+     */
+    private static com.google.gson.JsonObject getStoredComponents(String itemId) {
+        com.google.gson.JsonObject componentObj = itemComponentObjects.get(itemId);
+        if (componentObj == null || componentObj.isEmpty()) {
+            componentObj = blockComponentObjects.get(itemId);
+        }
+        return componentObj == null || componentObj.isEmpty() ? null : componentObj;
+    }
+    
+    private static DataComponentPatch compileComponents(Item item, String itemId, com.google.gson.JsonObject componentObj,
+                                                        net.minecraft.core.HolderLookup.Provider registryAccess) {
+        if (registryAccess == null) {
+            return DataComponentPatch.EMPTY;
+        }
+        
+        String componentString = convertJsonComponentsToSNBT(componentObj);
+        if (componentString == null || componentString.isEmpty()) {
+            return DataComponentPatch.EMPTY;
+        }
+        
+        DataComponentPatch patch = parseComponents(item, componentString, registryAccess);
+        NotEnoughRecipes.LOGGER.debug("Compiled components for {}: {}", itemId, componentString);
+        return patch != null ? patch : DataComponentPatch.EMPTY;
+    }
+    
+    /**
+     * Bakes the JSON components of a registered dynamic item into its default components, so
+     * every stack of it has them, wherever it's created, without carrying them as a patch.
+     * 
+     * Only components that can be parsed against the built-in registries are baked. Anything that
+     * references data pack registries (enchantments, trims, ...) needs a running server, so those
+     * items keep their components as a per-stack patch applied by {@link #createItemStack}.
+     * Stacks that already exist keep the defaults they were created with until they are reloaded.
+     */
+    private static void bakeComponents(Item item, String itemId, com.google.gson.JsonObject components) {
+        DataComponentMap registered = registeredComponents.computeIfAbsent(itemId, id -> item.components());
+        DataComponentMap defaults = registered;
+        bakedComponents.remove(itemId);
+        
+        String componentString = components != null ? convertJsonComponentsToSNBT(components) : "";
+        if (!componentString.isEmpty()) {
+            try {
+                var location = BuiltInRegistries.ITEM.getKey(item);
+                var result = new ItemParser(STATIC_REGISTRIES).parse(new StringReader(location + componentString));
+                defaults = PatchedDataComponentMap.fromPatch(registered, result.components()).toImmutableMap();
+                bakedComponents.add(itemId);
+                NotEnoughRecipes.LOGGER.debug("Baked components into {}: {}", location, componentString);
+            } catch (CommandSyntaxException e) {
+                NotEnoughRecipes.LOGGER.debug("Components of '{}' need a server, applying them per stack: {}", itemId, e.getMessage());
+            } catch (Exception e) {
+                NotEnoughRecipes.LOGGER.warn("Failed to bake components of '{}': {}", itemId, e.getMessage());
             }
         }
         
-        return stack;
+        ((ItemAccessor) item).setComponents(defaults);
+    }
+    
+    private static void rebakeComponents(String itemId, com.google.gson.JsonObject components) {
+        Identifier location = Identifier.parse(NotEnoughRecipes.MOD_ID + ":" + itemId);
+        if (BuiltInRegistries.ITEM.containsKey(location)) {
+            bakeComponents(BuiltInRegistries.ITEM.getValue(location), itemId, components);
+        }
     }
     
     /**
@@ -877,38 +1082,51 @@ public class DynamicRegistryHelper {
             return;
         }
         
+        // Get registry access from the client's current level or integrated server
+        net.minecraft.core.HolderLookup.Provider registryAccess = getRegistryAccess();
+        if (registryAccess == null) {
+            NotEnoughRecipes.LOGGER.warn("Cannot apply components: no registry access available");
+            return;
+        }
+        
+        DataComponentPatch patch = parseComponents(stack.getItem(), componentString, registryAccess);
+        if (patch != null) {
+            // Apply the parsed components to our stack
+            stack.applyComponents(patch);
+        }
+    }
+    
+    /**
+     * Parses components in /give format for an item.
+     * 
+     * @return the parsed components, or null if they couldn't be parsed
+     */
+    private static DataComponentPatch parseComponents(Item item, String componentString,
+                                                      net.minecraft.core.HolderLookup.Provider registryAccess) {
         try {
             // Get the item's full ID
-            var itemId = BuiltInRegistries.ITEM.getKey(stack.getItem());
+            var itemId = BuiltInRegistries.ITEM.getKey(item);
             if (itemId == null) {
                 NotEnoughRecipes.LOGGER.warn("Cannot apply components: item not registered");
-                return;
+                return null;
             }
             
             // Build the full item string: "namespace:item_id[components]"
             String fullItemString = itemId.toString() + componentString;
             
-            // Get registry access from the client's current level or integrated server
-            net.minecraft.core.HolderLookup.Provider registryAccess = getRegistryAccess();
-            if (registryAccess == null) {
-                NotEnoughRecipes.LOGGER.warn("Cannot apply components: no registry access available");
-                return;
-            }
-            
             // Use Minecraft's ItemParser to parse the component string
             // This is the same parser used by /give command
             var parser = new ItemParser(registryAccess);
             var result = parser.parse(new StringReader(fullItemString));
             
-            // Apply the parsed components to our stack
-            stack.applyComponents(result.components());
-            
-            NotEnoughRecipes.LOGGER.debug("Applied components to {}: {}", itemId, componentString);
+            NotEnoughRecipes.LOGGER.debug("Parsed components for {}: {}", itemId, componentString);
+            return result.components();
         } catch (CommandSyntaxException e) {
             NotEnoughRecipes.LOGGER.warn("Failed to parse components '{}': {}", componentString, e.getMessage());
         } catch (Exception e) {
             NotEnoughRecipes.LOGGER.error("Error applying components", e);
         }
+        return null;
     }
     
     /**
@@ -916,6 +1134,11 @@ public class DynamicRegistryHelper {
      * IMPORTANT: Must use server's registry access for proper network serialization.
      */
     private static net.minecraft.core.HolderLookup.Provider getRegistryAccess() {
+        // The client classes don't exist on a dedicated server
+        if (net.fabricmc.loader.api.FabricLoader.getInstance().getEnvironmentType() != net.fabricmc.api.EnvType.CLIENT) {
+            return null;
+        }
+        
         try {
             var minecraft = net.minecraft.client.Minecraft.getInstance();
             if (minecraft == null) {
@@ -926,10 +1149,14 @@ public class DynamicRegistryHelper {
             // The client level's registry doesn't have proper ID mappings for network packets
             var server = minecraft.getSingleplayerServer();
             if (server != null) {
+                missingRegistryAccess = false;
                 return server.registryAccess();
             }
             
-            NotEnoughRecipes.LOGGER.warn("No server registry access available - components may not serialize correctly");
+            if (!missingRegistryAccess) {
+                missingRegistryAccess = true;
+                NotEnoughRecipes.LOGGER.warn("No server registry access available - components may not serialize correctly");
+            }
             return null;
         } catch (Exception e) {
             NotEnoughRecipes.LOGGER.debug("Failed to get registry access: {}", e.getMessage());
@@ -6,6 +6,9 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.JsonOps;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
@@ -16,9 +19,16 @@ import net.minecraft.world.item.Rarity;
 import net.minecraft.world.level.block.SoundType;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * Handles persistence of dynamically registered items and blocks using structured JSON.
@@ -45,6 +55,11 @@ import java.util.*;
  * 
  * Blocks keep 'properties' for BlockBehaviour.Properties (hardness, resistance, etc.)
  * and 'components' for the BlockItem's data components.
+ * 
+ * How changes reach the disk is set by 'storage' in config.json: "json" (default) rewrites
+ * items.json and blocks.json, "journal" appends each change to journal.ndjson and folds it
+ * into the files in the background, and "sharded" keeps one file per definition in the
+ * items/ and blocks/ folders.
  */
 public class DynamicRegistryPersistence {
 
@@ -56,9 +71,42 @@ public class DynamicRegistryPersistence {
     private static final String REGISTRY_FOLDER = "dynamic_registry";
     private static final String ITEMS_FILE = "items.json";
     private static final String BLOCKS_FILE = "blocks.json";
+    private static final String CONFIG_FILE = "config.json";
+    private static final String JOURNAL_FILE = "journal.ndjson";
+    private static final String ITEMS_FOLDER = "items";
+    private static final String BLOCKS_FOLDER = "blocks";
+    private static final String ITEMS_INDEX_FILE = "items_index.txt";
+    private static final String BLOCKS_INDEX_FILE = "blocks_index.txt";
 
     private static Path registryPath;
     private static boolean initialized = false;
+    private static PersistenceConfig config = new PersistenceConfig();
+    private static DefinitionJournal journal; // Only in journal mode
+    private static ShardedDefinitions<ItemDefinition> itemShards; // Only in sharded mode
+    private static ShardedDefinitions<BlockDefinition> blockShards;
+
+    // The persisted definitions, read once and written back in the background (or journaled)
+    private static final DefinitionStore<ItemDefinition> ITEMS = new DefinitionStore<>("items", item -> item.id,
+            DynamicRegistryPersistence::readItems, DynamicRegistryPersistence::saveItemDefinitions);
+    private static final DefinitionStore<BlockDefinition> BLOCKS = new DefinitionStore<>("blocks", block -> block.id,
+            DynamicRegistryPersistence::readBlocks, DynamicRegistryPersistence::saveBlockDefinitions);
+
+    // ==================== Configuration ====================
+
+    /**
+     * Persistence settings, read from config.json in the registry folder.
+     */
+    public static class PersistenceConfig {
+        /**
+         * "json" rewrites items.json/blocks.json on save, "journal" appends each change to journal.ndjson,
+         * "sharded" writes one file per definition to items/ and blocks/.
+         */
+        public String storage = "json";
+        /** When journal lines are forced to disk: "always", "interval" (within a second) or "never". */
+        public String journal_fsync = "always";
+        /** Journal lines before they are folded into items.json and blocks.json. */
+        public int journal_compact_after = 1000;
+    }
 
     // ==================== Item Definition ====================
 
@@ -317,11 +365,50 @@ public class DynamicRegistryPersistence {
 
             // Create example files if they don't exist
             createExampleFiles();
+
+            config = loadConfig();
+            boolean sharded = "sharded".equalsIgnoreCase(config.storage);
+            // Before the journal is opened or folded, as it applies to items.json and blocks.json
+            if (!sharded) {
+                exportLeftoverShards();
+            }
+            if ("journal".equalsIgnoreCase(config.storage)) {
+                openJournal();
+            } else {
+                boolean folded = foldLeftoverJournal();
+                if (sharded) {
+                    openShards(folded);
+                }
+            }
         } catch (IOException e) {
             NotEnoughRecipes.LOGGER.error("Failed to create registry persistence directory", e);
         }
     }
 
+    /**
+     * Loads config.json from the registry folder, creating it with defaults if it doesn't exist.
+     */
+    private static PersistenceConfig loadConfig() {
+        Path configFile = registryPath.resolve(CONFIG_FILE);
+        if (Files.exists(configFile)) {
+            try {
+                PersistenceConfig loaded = GSON.fromJson(Files.readString(configFile), PersistenceConfig.class);
+                if (loaded != null) {
+                    return loaded;
+                }
+            } catch (Exception e) {
+                NotEnoughRecipes.LOGGER.warn("Failed to load persistence config.json, using defaults: {}", e.getMessage());
+            }
+        } else {
+            try {
+                Files.writeString(configFile, GSON.toJson(new PersistenceConfig()));
+            } catch (IOException e) {
+                NotEnoughRecipes.LOGGER.warn("Failed to create default persistence config.json: {}", e.getMessage());
+            }
+        }
+        return new PersistenceConfig();
+    }
+
     /**
      * Creates example items.json and blocks.json with documentation.
      */
@@ -406,22 +493,8 @@ public class DynamicRegistryPersistence {
     public static void saveItemDefinition(ItemDefinition definition) {
         initialize();
 
-        List<ItemDefinition> items = loadItemDefinitions();
-
-        // Update or add
-        boolean found = false;
-        for (int i = 0; i < items.size(); i++) {
-            if (items.get(i).id.equals(definition.id)) {
-                items.set(i, definition);
-                found = true;
-                break;
-            }
-        }
-        if (!found) {
-            items.add(definition);
-        }
-
-        saveItemDefinitions(items);
+        // Update or add; written to items.json in the background
+        ITEMS.put(definition);
         NotEnoughRecipes.LOGGER.info("Saved item definition: {}", definition.id);
     }
 
@@ -432,27 +505,64 @@ public class DynamicRegistryPersistence {
     public static void saveBlockDefinition(BlockDefinition definition) {
         initialize();
 
-        List<BlockDefinition> blocks = loadBlockDefinitions();
+        // Update or add; written to blocks.json in the background
+        BLOCKS.put(definition);
+        NotEnoughRecipes.LOGGER.info("Saved block definition: {}", definition.id);
+    }
 
-        // Update or add
-        boolean found = false;
-        for (int i = 0; i < blocks.size(); i++) {
-            if (blocks.get(i).id.equals(definition.id)) {
-                blocks.set(i, definition);
-                found = true;
-                break;
-            }
-        }
-        if (!found) {
-            blocks.add(definition);
-        }
+    /**
+     * Gets the persisted item definitions without touching the disk (after the first load).
+     */
+    public static List<ItemDefinition> getItemDefinitions() {
+        initialize();
+        return ITEMS.getAll();
+    }
 
-        saveBlockDefinitions(blocks);
-        NotEnoughRecipes.LOGGER.info("Saved block definition: {}", definition.id);
+    /**
+     * Gets the persisted block definitions without touching the disk (after the first load).
+     */
+    public static List<BlockDefinition> getBlockDefinitions() {
+        initialize();
+        return BLOCKS.getAll();
     }
 
+    /**
+     * Re-reads items.json, picking up edits made by hand. Pending saves are written first.
+     */
     public static List<ItemDefinition> loadItemDefinitions() {
         initialize();
+        return ITEMS.reload();
+    }
+
+    /**
+     * Re-reads blocks.json, picking up edits made by hand. Pending saves are written first.
+     */
+    public static List<BlockDefinition> loadBlockDefinitions() {
+        initialize();
+        return BLOCKS.reload();
+    }
+
+    private static List<ItemDefinition> readItems() {
+        if (itemShards != null) {
+            return itemShards.readAll();
+        }
+        // The journal is read before the file it applies to. If a compaction finishes in between,
+        // its lines are already in the file and replaying them again changes nothing; read the other
+        // way round, they could be deleted before the file that has them is read
+        List<JsonObject> entries = readJournal();
+        return replayJournal(readItemDefinitions(), entries, "item", item -> item.id, DynamicRegistryPersistence::parseItemDefinition);
+    }
+
+    private static List<BlockDefinition> readBlocks() {
+        if (blockShards != null) {
+            return blockShards.readAll();
+        }
+        List<JsonObject> entries = readJournal();
+        return replayJournal(readBlockDefinitions(), entries, "block", block -> block.id, DynamicRegistryPersistence::parseBlockDefinition);
+    }
+
+    private static List<ItemDefinition> readItemDefinitions() {
+        initialize();
 
         Path itemsFile = registryPath.resolve(ITEMS_FILE);
 
@@ -461,30 +571,7 @@ public class DynamicRegistryPersistence {
         }
 
         try {
-            String json = Files.readString(itemsFile);
-            JsonElement element = JsonParser.parseString(json);
-            
-            List<ItemDefinition> items = new ArrayList<>();
-            if (element.isJsonArray()) {
-                for (JsonElement itemElem : element.getAsJsonArray()) {
-                    JsonObject itemObj = itemElem.getAsJsonObject();
-                    ItemDefinition item = new ItemDefinition();
-                    item.id = itemObj.get("id").getAsString();
-                    item.texture = itemObj.get("texture").getAsString();
-                    item.components = itemObj.has("components") ? itemObj.getAsJsonObject("components") : new JsonObject();
-                    // Parse tags
-                    if (itemObj.has("tags") && itemObj.get("tags").isJsonArray()) {
-                        item.tags = new ArrayList<>();
-                        for (JsonElement tagElem : itemObj.getAsJsonArray("tags")) {
-                            item.tags.add(tagElem.getAsString());
-                        }
-                    } else {
-                        item.tags = new ArrayList<>();
-                    }
-                    items.add(item);
-                }
-            }
-            return items;
+            return streamDefinitions(itemsFile, DynamicRegistryPersistence::parseItemDefinition);
         } catch (IOException e) {
             NotEnoughRecipes.LOGGER.error("Failed to load item definitions", e);
             return new ArrayList<>();
@@ -494,7 +581,7 @@ public class DynamicRegistryPersistence {
         }
     }
 
-    public static List<BlockDefinition> loadBlockDefinitions() {
+    private static List<BlockDefinition> readBlockDefinitions() {
         initialize();
 
         Path blocksFile = registryPath.resolve(BLOCKS_FILE);
@@ -504,44 +591,7 @@ public class DynamicRegistryPersistence {
         }
 
         try {
-            String json = Files.readString(blocksFile);
-            JsonElement element = JsonParser.parseString(json);
-            
-            List<BlockDefinition> blocks = new ArrayList<>();
-            if (element.isJsonArray()) {
-                for (JsonElement blockElem : element.getAsJsonArray()) {
-                    JsonObject blockObj = blockElem.getAsJsonObject();
-                    BlockDefinition block = new BlockDefinition();
-                    block.id = blockObj.get("id").getAsString();
-                    block.texture = blockObj.get("texture").getAsString();
-                    
-                    // Load block properties
-                    if (blockObj.has("properties")) {
-                        var propsResult = BLOCK_PROPERTIES_CODEC.parse(JsonOps.INSTANCE, blockObj.get("properties"));
-                        if (propsResult.result().isPresent()) {
-                            block.properties = propsResult.result().get();
-                        }
-                    }
-                    
-                    // Load components
-                    block.components = blockObj.has("components") ? blockObj.getAsJsonObject("components") : new JsonObject();
-                    // Parse tags
-                    if (blockObj.has("tags") && blockObj.get("tags").isJsonArray()) {
-                        block.tags = new ArrayList<>();
-                        for (JsonElement tagElem : blockObj.getAsJsonArray("tags")) {
-                            block.tags.add(tagElem.getAsString());
-                        }
-                    } else {
-                        block.tags = new ArrayList<>();
-                    }
-                    // Parse drops
-                    if (blockObj.has("drops") && blockObj.get("drops").isJsonArray()) {
-                        block.drops = blockObj.getAsJsonArray("drops");
-                    }
-                    blocks.add(block);
-                }
-            }
-            return blocks;
+            return streamDefinitions(blocksFile, DynamicRegistryPersistence::parseBlockDefinition);
         } catch (IOException e) {
             NotEnoughRecipes.LOGGER.error("Failed to load block definitions", e);
             return new ArrayList<>();
@@ -551,25 +601,347 @@ public class DynamicRegistryPersistence {
         }
     }
 
-    private static void saveItemDefinitions(List<ItemDefinition> items) {
+    /**
+     * Reads a JSON array of definitions one element at a time, so neither the whole file nor
+     * its whole JSON tree is held in memory while loading: only the definitions themselves.
+     */
+    private static <T> List<T> streamDefinitions(Path file, Function<JsonObject, T> parser) throws IOException {
+        List<T> definitions = new ArrayList<>();
+        if (Files.size(file) == 0) {
+            return definitions;
+        }
+
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            // Hand-edited files are accepted as leniently as the tree parser used to
+            reader.setStrictness(Strictness.LENIENT);
+            // Anything but an array holds no definitions
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                return definitions;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                definitions.add(parser.apply(JsonParser.parseReader(reader).getAsJsonObject()));
+            }
+            reader.endArray();
+        }
+        return definitions;
+    }
+
+    private static ItemDefinition parseItemDefinition(JsonObject itemObj) {
+        ItemDefinition item = new ItemDefinition();
+        item.id = itemObj.get("id").getAsString();
+        item.texture = itemObj.get("texture").getAsString();
+        item.components = itemObj.has("components") ? itemObj.getAsJsonObject("components") : new JsonObject();
+        // Parse tags
+        if (itemObj.has("tags") && itemObj.get("tags").isJsonArray()) {
+            item.tags = new ArrayList<>();
+            for (JsonElement tagElem : itemObj.getAsJsonArray("tags")) {
+                item.tags.add(tagElem.getAsString());
+            }
+        } else {
+            item.tags = new ArrayList<>();
+        }
+        return item;
+    }
+
+    private static BlockDefinition parseBlockDefinition(JsonObject blockObj) {
+        BlockDefinition block = new BlockDefinition();
+        block.id = blockObj.get("id").getAsString();
+        block.texture = blockObj.get("texture").getAsString();
+        
+        // Load block properties
+        if (blockObj.has("properties")) {
+            var propsResult = BLOCK_PROPERTIES_CODEC.parse(JsonOps.INSTANCE, blockObj.get("properties"));
+            if (propsResult.result().isPresent()) {
+                block.properties = propsResult.result().get();
+            }
+        }
+        
+        // Load components
+        block.components = blockObj.has("components") ? blockObj.getAsJsonObject("components") : new JsonObject();
+        // Parse tags
+        if (blockObj.has("tags") && blockObj.get("tags").isJsonArray()) {
+            block.tags = new ArrayList<>();
+            for (JsonElement tagElem : blockObj.getAsJsonArray("tags")) {
+                block.tags.add(tagElem.getAsString());
+            }
+        } else {
+            block.tags = new ArrayList<>();
+        }
+        // Parse drops
+        if (blockObj.has("drops") && blockObj.get("drops").isJsonArray()) {
+            block.drops = blockObj.getAsJsonArray("drops");
+        }
+        return block;
+    }
+
+    // ==================== Sharded Layout ====================
+
+    /**
+     * Switches to the sharded layout: one file per definition in items/ and blocks/, so a save
+     * only writes one small file. Definitions in items.json and blocks.json are moved over the
+     * first time, and again when a leftover journal was just folded into them.
+     */
+    private static void openShards(boolean foldedJournal) {
+        itemShards = new ShardedDefinitions<>(registryPath.resolve(ITEMS_FOLDER), registryPath.resolve(ITEMS_INDEX_FILE),
+                GSON, item -> item.id, DynamicRegistryPersistence::parseItemDefinition);
+        blockShards = new ShardedDefinitions<>(registryPath.resolve(BLOCKS_FOLDER), registryPath.resolve(BLOCKS_INDEX_FILE),
+                GSON, block -> block.id, DynamicRegistryPersistence::parseBlockDefinition);
+
+        if (itemShards.isNew()) {
+            itemShards.importAll(readItemDefinitions());
+        } else if (foldedJournal) {
+            itemShards.replaceAll(readItemDefinitions());
+        }
+        if (blockShards.isNew()) {
+            blockShards.importAll(readBlockDefinitions());
+        } else if (foldedJournal) {
+            blockShards.replaceAll(readBlockDefinitions());
+        }
+
+        ITEMS.useChangeLog(itemShards);
+        BLOCKS.useChangeLog(blockShards);
+        NotEnoughRecipes.LOGGER.info("Dynamic registry persistence is using one file per definition");
+    }
+
+    /**
+     * Moves definitions left in items/ and blocks/ from running sharded back into items.json and
+     * blocks.json. Otherwise the other modes would read the files as they were before the switch.
+     * The shards are deleted once exported, so switching back to sharded imports the files again.
+     */
+    private static void exportLeftoverShards() {
+        ShardedDefinitions<ItemDefinition> items = new ShardedDefinitions<>(registryPath.resolve(ITEMS_FOLDER),
+                registryPath.resolve(ITEMS_INDEX_FILE), GSON, item -> item.id, DynamicRegistryPersistence::parseItemDefinition);
+        ShardedDefinitions<BlockDefinition> blocks = new ShardedDefinitions<>(registryPath.resolve(BLOCKS_FOLDER),
+                registryPath.resolve(BLOCKS_INDEX_FILE), GSON, block -> block.id, DynamicRegistryPersistence::parseBlockDefinition);
+
+        try {
+            if (!items.isNew()) {
+                List<ItemDefinition> exported = items.readAll();
+                if (!saveItemDefinitions(exported)) {
+                    return;
+                }
+                items.delete();
+                NotEnoughRecipes.LOGGER.info("Moved {} items left from sharded storage into items.json", exported.size());
+            }
+            if (!blocks.isNew()) {
+                List<BlockDefinition> exported = blocks.readAll();
+                if (!saveBlockDefinitions(exported)) {
+                    return;
+                }
+                blocks.delete();
+                NotEnoughRecipes.LOGGER.info("Moved {} blocks left from sharded storage into blocks.json", exported.size());
+            }
+        } catch (IOException e) {
+            NotEnoughRecipes.LOGGER.error("Failed to remove the sharded definitions after moving them into items.json and blocks.json", e);
+        }
+    }
+
+    // ==================== Journal ====================
+
+    /**
+     * Switches to journal mode: changes are appended to journal.ndjson as they're made and
+     * folded into items.json and blocks.json by a background compaction.
+     */
+    private static void openJournal() {
+        journal = new DefinitionJournal(registryPath.resolve(JOURNAL_FILE),
+                DefinitionJournal.SyncPolicy.parse(config.journal_fsync),
+                config.journal_compact_after,
+                DynamicRegistryPersistence::compactJournal);
+        ITEMS.useChangeLog(journalChangeLog("item"));
+        BLOCKS.useChangeLog(journalChangeLog("block"));
+        NotEnoughRecipes.LOGGER.info("Dynamic registry persistence is using the journal");
+    }
+
+    private static <T> DefinitionStore.ChangeLog<T> journalChangeLog(String type) {
+        return new DefinitionStore.ChangeLog<>() {
+            @Override
+            public void put(T definition) {
+                JsonObject entry = journalEntry(type, "put");
+                entry.add("definition", GSON.toJsonTree(definition));
+                journal.append(entry);
+            }
+
+            @Override
+            public void remove(String id) {
+                JsonObject entry = journalEntry(type, "remove");
+                entry.addProperty("id", id);
+                journal.append(entry);
+            }
+
+            @Override
+            public void clear() {
+                journal.append(journalEntry(type, "clear"));
+            }
+        };
+    }
+
+    private static JsonObject journalEntry(String type, String op) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty("type", type);
+        entry.addProperty("op", op);
+        return entry;
+    }
+
+    /**
+     * Folds a journal left from running in journal mode into items.json and blocks.json, the
+     * files it applies to. Otherwise switching to another mode would ignore the changes only the
+     * journal has, and the next write of those files would drop them for good.
+     *
+     * @return Whether a journal was folded
+     */
+    private static boolean foldLeftoverJournal() {
+        Path journalFile = registryPath.resolve(JOURNAL_FILE);
+        if (!DefinitionJournal.exists(journalFile)) {
+            return false;
+        }
+
+        try {
+            DefinitionJournal leftover = new DefinitionJournal(journalFile, DefinitionJournal.SyncPolicy.NEVER,
+                    Integer.MAX_VALUE, () -> {});
+            List<JsonObject> entries = leftover.read();
+            List<ItemDefinition> items = replayJournal(readItemDefinitions(), entries, "item",
+                    item -> item.id, DynamicRegistryPersistence::parseItemDefinition);
+            List<BlockDefinition> blocks = replayJournal(readBlockDefinitions(), entries, "block",
+                    block -> block.id, DynamicRegistryPersistence::parseBlockDefinition);
+
+            // Only dropped once both files are on disk
+            if (!saveItemDefinitions(items) || !saveBlockDefinitions(blocks)) {
+                NotEnoughRecipes.LOGGER.error("Failed to fold the leftover journal into items.json and blocks.json; "
+                        + "it's kept and will be tried again on the next start");
+                return false;
+            }
+            NotEnoughRecipes.LOGGER.info("Folded {} journal entries left from journal storage into items.json and blocks.json",
+                    entries.size());
+            leftover.rotate();
+            leftover.finishCompaction();
+        } catch (IOException e) {
+            NotEnoughRecipes.LOGGER.error("Failed to remove the leftover journal after folding it", e);
+        }
+        return true;
+    }
+
+    private static List<JsonObject> readJournal() {
+        return journal != null ? journal.read() : List.of();
+    }
+
+    /**
+     * Applies the journaled changes of one type to definitions read from their file.
+     */
+    private static <T> List<T> replayJournal(List<T> definitions, List<JsonObject> entries, String type,
+                                             Function<T, String> idOf, Function<JsonObject, T> parser) {
+        if (entries.isEmpty()) {
+            return definitions;
+        }
+
+        Map<String, T> byId = new LinkedHashMap<>();
+        for (T definition : definitions) {
+            byId.put(idOf.apply(definition), definition);
+        }
+
+        for (JsonObject entry : entries) {
+            try {
+                if (!type.equals(entry.get("type").getAsString())) {
+                    continue;
+                }
+                switch (entry.get("op").getAsString()) {
+                    case "put" -> {
+                        T definition = parser.apply(entry.getAsJsonObject("definition"));
+                        byId.put(idOf.apply(definition), definition);
+                    }
+                    case "remove" -> byId.remove(entry.get("id").getAsString());
+                    case "clear" -> byId.clear();
+                    default -> NotEnoughRecipes.LOGGER.warn("Skipping journal entry with unknown op: {}", entry);
+                }
+            } catch (Exception e) {
+                NotEnoughRecipes.LOGGER.warn("Skipping invalid journal entry {}: {}", entry, e.getMessage());
+            }
+        }
+
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * Folds the journal into items.json and blocks.json. Runs on the background writer.
+     */
+    private static void compactJournal() {
+        try {
+            List<ItemDefinition> items;
+            List<BlockDefinition> blocks;
+            // Snapshot and rotate together, so every change is either in the snapshot or in the new journal
+            synchronized (DefinitionStore.LOCK) {
+                items = ITEMS.getAll();
+                blocks = BLOCKS.getAll();
+                journal.rotate();
+            }
+
+            // Both files are on disk once written, so the rotated journal is no longer needed
+            if (ITEMS.write(items) && BLOCKS.write(blocks)) {
+                journal.finishCompaction();
+                NotEnoughRecipes.LOGGER.debug("Compacted journal into {} items and {} blocks", items.size(), blocks.size());
+            }
+        } catch (Exception e) {
+            NotEnoughRecipes.LOGGER.error("Failed to compact journal", e);
+        }
+    }
+
+    private static boolean saveItemDefinitions(List<ItemDefinition> items) {
         Path itemsFile = registryPath.resolve(ITEMS_FILE);
 
         try {
-            String json = GSON.toJson(items);
-            Files.writeString(itemsFile, json);
+            writeAtomically(itemsFile, GSON.toJson(items));
+            return true;
         } catch (IOException e) {
             NotEnoughRecipes.LOGGER.error("Failed to save item definitions", e);
+            return false;
         }
     }
 
-    private static void saveBlockDefinitions(List<BlockDefinition> blocks) {
+    private static boolean saveBlockDefinitions(List<BlockDefinition> blocks) {
         Path blocksFile = registryPath.resolve(BLOCKS_FILE);
 
         try {
-            String json = GSON.toJson(blocks);
-            Files.writeString(blocksFile, json);
+            writeAtomically(blocksFile, GSON.toJson(blocks));
+            return true;
         } catch (IOException e) {
             NotEnoughRecipes.LOGGER.error("Failed to save block definitions", e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes a file through a temporary file and a rename, so a crash mid-write
+     * never leaves a truncated file behind. The contents are on disk before the rename
+     * and the rename is on disk when this returns, so the journal can be dropped after it.
+     */
+    static void writeAtomically(Path file, String content) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(file.getParent());
+    }
+
+    /**
+     * Forces a directory's entries to disk, so a rename in it survives a crash.
+     * Not every platform can open a directory (Windows can't), and there it's skipped.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            NotEnoughRecipes.LOGGER.debug("Couldn't sync directory {}: {}", directory, e.getMessage());
         }
     }
 
@@ -587,33 +959,41 @@ public class DynamicRegistryPersistence {
         // First, initialize the resource loader
         DynamicResourceLoader.initialize();
 
-        // Load and register items
-        List<ItemDefinition> items = loadItemDefinitions();
+        // Register everything in one batch, so the registries are unfrozen and frozen only once
         int itemCount = 0;
-        for (ItemDefinition item : items) {
-            try {
-                NotEnoughRecipes.LOGGER.info("Restoring item: {} with texture {}", item.id, item.texture);
-                DynamicRegistryHelper.registerDynamicItemFromDefinition(item);
-                itemCount++;
-            } catch (Exception e) {
-                NotEnoughRecipes.LOGGER.error("Failed to restore item: {}", item.id, e);
+        int blockCount = 0;
+        try (var batch = DynamicRegistryHelper.batch()) {
+            // Load and register items
+            List<ItemDefinition> items = loadItemDefinitions();
+            for (ItemDefinition item : items) {
+                try {
+                    NotEnoughRecipes.LOGGER.info("Restoring item: {} with texture {}", item.id, item.texture);
+                    DynamicRegistryHelper.registerDynamicItemFromDefinition(item);
+                    itemCount++;
+                } catch (Exception e) {
+                    NotEnoughRecipes.LOGGER.error("Failed to restore item: {}", item.id, e);
+                }
             }
-        }
 
-        // Load and register blocks
-        List<BlockDefinition> blocks = loadBlockDefinitions();
-        int blockCount = 0;
-        for (BlockDefinition block : blocks) {
-            try {
-                NotEnoughRecipes.LOGGER.info("Restoring block: {} with texture {}", block.id, block.texture);
-                DynamicRegistryHelper.registerDynamicBlockFromDefinition(block);
-                blockCount++;
-            } catch (Exception e) {
-                NotEnoughRecipes.LOGGER.error("Failed to restore block: {}", block.id, e);
+            // Load and register blocks
+            List<BlockDefinition> blocks = loadBlockDefinitions();
+            for (BlockDefinition block : blocks) {
+                try {
+                    NotEnoughRecipes.LOGGER.info("Restoring block: {} with texture {}", block.id, block.texture);
+                    DynamicRegistryHelper.registerDynamicBlockFromDefinition(block);
+                    blockCount++;
+                } catch (Exception e) {
+                    NotEnoughRecipes.LOGGER.error("Failed to restore block: {}", block.id, e);
+                }
             }
         }
 
         NotEnoughRecipes.LOGGER.info("Restored {} items and {} blocks from persistent storage", itemCount, blockCount);
+
+        // Fold whatever the last session journaled into the definition files
+        if (journal != null && !journal.isEmpty()) {
+            journal.scheduleCompaction();
+        }
         
         // Rebuild resource pack and trigger reload so textures are visible immediately
         if (itemCount > 0 || blockCount > 0) {
@@ -634,11 +1014,9 @@ public class DynamicRegistryPersistence {
     public static boolean removeItemDefinition(String id) {
         initialize();
 
-        List<ItemDefinition> items = loadItemDefinitions();
-        boolean removed = items.removeIf(item -> item.id.equals(id));
+        boolean removed = ITEMS.remove(id);
 
         if (removed) {
-            saveItemDefinitions(items);
             NotEnoughRecipes.LOGGER.info("Removed item definition: {}", id);
         }
 
@@ -648,11 +1026,9 @@ public class DynamicRegistryPersistence {
     public static boolean removeBlockDefinition(String id) {
         initialize();
 
-        List<BlockDefinition> blocks = loadBlockDefinitions();
-        boolean removed = blocks.removeIf(block -> block.id.equals(id));
+        boolean removed = BLOCKS.remove(id);
 
         if (removed) {
-            saveBlockDefinitions(blocks);
             NotEnoughRecipes.LOGGER.info("Removed block definition: {}", id);
         }
 
@@ -662,8 +1038,8 @@ public class DynamicRegistryPersistence {
     public static void clearAll() {
         initialize();
 
-        saveItemDefinitions(new ArrayList<>());
-        saveBlockDefinitions(new ArrayList<>());
+        ITEMS.clear();
+        BLOCKS.clear();
         NotEnoughRecipes.LOGGER.info("Cleared all persisted definitions");
     }
 
@@ -673,10 +1049,17 @@ public class DynamicRegistryPersistence {
     }
 
     public static String getStats() {
-        List<ItemDefinition> items = loadItemDefinitions();
-        List<BlockDefinition> blocks = loadBlockDefinitions();
+        initialize();
 
         return String.format("Persisted: %d items, %d blocks\nPath: %s",
-                items.size(), blocks.size(), registryPath);
+                ITEMS.size(), BLOCKS.size(), registryPath);
+    }
+
+    /**
+     * Writes any pending saves to disk now.
+     */
+    public static void flush() {
+        ITEMS.flush();
+        BLOCKS.flush();
     }
 }
@@ -0,0 +1,346 @@
+package dev.scuffi.registry;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dev.scuffi.NotEnoughRecipes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Stores definitions as one file per definition, {@code <folder>/<id>.json}, plus an index
+ * file listing the ids in save order, one per line. The index only keeps the order; files
+ * missing from it are still found by listing the folder.
+ * 
+ * Saving a definition only rewrites its own file, in the background like {@link DefinitionStore}.
+ * New ids are appended to the index, and the index is only rewritten when definitions are
+ * removed. Reading parses the files in parallel, and a re-read only parses the files whose
+ * content changed since they were last read or written.
+ */
+final class ShardedDefinitions<T> implements DefinitionStore.ChangeLog<T> {
+    
+    private static final long FLUSH_DELAY_MS = 1000;
+    
+    private record Shard<T>(String hash, T definition) {}
+    
+    private final Path folder;
+    private final Path indexFile;
+    private final Gson gson;
+    private final Function<T, String> idOf;
+    private final Function<JsonObject, T> parser;
+    
+    // Held while writing, so files reach the disk in the order changes were made.
+    // Never taken while holding the monitor of this object
+    private final Object writeLock = new Object();
+    
+    // Ids in save order, as in the index file
+    private final Set<String> index = new LinkedHashSet<>();
+    // Definitions as last read or written, with a hash of the file, so unchanged files aren't parsed again
+    private final Map<String, Shard<T>> shards = new HashMap<>();
+    // id -> definition to write, or null to delete; guarded by this object
+    private final Map<String, T> pending = new LinkedHashMap<>();
+    private boolean clearPending = false;
+    private boolean flushScheduled = false;
+    
+    ShardedDefinitions(Path folder, Path indexFile, Gson gson, Function<T, String> idOf, Function<JsonObject, T> parser) {
+        this.folder = folder;
+        this.indexFile = indexFile;
+        this.gson = gson;
+        this.idOf = idOf;
+        this.parser = parser;
+        readIndex();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "NER-Registry-Shards"));
+    }
+    
+    /**
+     * Whether nothing has been stored in this layout yet.
+     */
+    boolean isNew() {
+        return !Files.exists(folder);
+    }
+    
+    /**
+     * Reads every definition file. Pending changes are written first.
+     */
+    List<T> readAll() {
+        flush();
+        
+        synchronized (writeLock) {
+            // Indexed ids first, in save order, then files added by hand
+            Set<String> ids = new LinkedHashSet<>(index);
+            if (Files.isDirectory(folder)) {
+                try (Stream<Path> files = Files.walk(folder)) {
+                    files.filter(file -> file.getFileName().toString().endsWith(".json"))
+                            .sorted()
+                            .forEach(file -> ids.add(idOfFile(file)));
+                } catch (IOException e) {
+                    NotEnoughRecipes.LOGGER.error("Failed to list definitions in {}", folder, e);
+                }
+            }
+            
+            List<Map.Entry<String, Shard<T>>> read = ids.parallelStream()
+                    .map(id -> Map.entry(id, Objects.requireNonNullElse(readShard(id), new Shard<T>(null, null))))
+                    .toList();
+            
+            List<T> definitions = new ArrayList<>();
+            List<String> indexed = new ArrayList<>(index);
+            index.clear();
+            shards.clear();
+            for (Map.Entry<String, Shard<T>> entry : read) {
+                Shard<T> shard = entry.getValue();
+                if (shard.definition() != null) {
+                    index.add(entry.getKey());
+                    shards.put(entry.getKey(), shard);
+                    definitions.add(shard.definition());
+                }
+            }
+            // Only rewritten when files were added or removed by hand
+            if (!indexed.equals(new ArrayList<>(index))) {
+                writeIndex();
+            }
+            return definitions;
+        }
+    }
+    
+    /**
+     * Writes the given definitions as shards, for moving from another layout.
+     */
+    void importAll(List<T> definitions) {
+        try {
+            Files.createDirectories(folder);
+        } catch (IOException e) {
+            NotEnoughRecipes.LOGGER.error("Failed to create {}", folder, e);
+        }
+        synchronized (this) {
+            for (T definition : definitions) {
+                pending.put(idOf.apply(definition), definition);
+            }
+        }
+        flush();
+        NotEnoughRecipes.LOGGER.info("Moved {} definitions into {}", definitions.size(), folder);
+    }
+    
+    /**
+     * Replaces every stored definition with the given ones, for definitions changed in another layout.
+     */
+    void replaceAll(List<T> definitions) {
+        // Indexes files added by hand too, so the clear deletes them
+        readAll();
+        synchronized (this) {
+            clear();
+            for (T definition : definitions) {
+                pending.put(idOf.apply(definition), definition);
+            }
+        }
+        flush();
+        NotEnoughRecipes.LOGGER.info("Replaced the definitions in {} with {} changed in another layout", folder, definitions.size());
+    }
+    
+    /**
+     * Deletes the folder and the index, for moving to another layout.
+     */
+    void delete() throws IOException {
+        synchronized (writeLock) {
+            synchronized (this) {
+                pending.clear();
+                clearPending = false;
+            }
+            if (Files.exists(folder)) {
+                try (Stream<Path> files = Files.walk(folder)) {
+                    // Deepest first, so folders are empty when they're deleted
+                    for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(file);
+                    }
+                }
+            }
+            Files.deleteIfExists(indexFile);
+            index.clear();
+            shards.clear();
+        }
+    }
+    
+    @Override
+    public synchronized void put(T definition) {
+        pending.put(idOf.apply(definition), definition);
+        scheduleFlush();
+    }
+    
+    @Override
+    public synchronized void remove(String id) {
+        pending.put(id, null);
+        scheduleFlush();
+    }
+    
+    @Override
+    public synchronized void clear() {
+        pending.clear();
+        clearPending = true;
+        scheduleFlush();
+    }
+    
+    /**
+     * Writes pending changes now instead of waiting for the background write.
+     */
+    void flush() {
+        synchronized (writeLock) {
+            Map<String, T> changes = new LinkedHashMap<>();
+            synchronized (this) {
+                flushScheduled = false;
+                if (pending.isEmpty() && !clearPending) {
+                    return;
+                }
+                // A clear deletes everything written so far, then the changes made after it apply
+                if (clearPending) {
+                    clearPending = false;
+                    for (String id : index) {
+                        changes.put(id, null);
+                    }
+                }
+                changes.putAll(pending);
+                pending.clear();
+            }
+            
+            List<String> added = new ArrayList<>();
+            boolean removed = false;
+            for (Map.Entry<String, T> change : changes.entrySet()) {
+                String id = change.getKey();
+                Path file = fileOf(id);
+                if (file == null) {
+                    NotEnoughRecipes.LOGGER.error("Not saving definition '{}': its id points outside {}", id, folder);
+                    continue;
+                }
+                try {
+                    if (change.getValue() == null) {
+                        Files.deleteIfExists(file);
+                        removed |= index.remove(id);
+                        shards.remove(id);
+                    } else {
+                        String json = gson.toJson(change.getValue());
+                        Files.createDirectories(file.getParent());
+                        DynamicRegistryPersistence.writeAtomically(file, json);
+                        if (index.add(id)) {
+                            added.add(id);
+                        }
+                        shards.put(id, new Shard<>(hash(json.getBytes(StandardCharsets.UTF_8)), change.getValue()));
+                    }
+                } catch (IOException e) {
+                    NotEnoughRecipes.LOGGER.error("Failed to save definition {}", file, e);
+                }
+            }
+            
+            // Saving existing definitions leaves the index as it is
+            if (removed) {
+                writeIndex();
+            } else if (!added.isEmpty()) {
+                appendIndex(added);
+            }
+        }
+    }
+    
+    /**
+     * Reads one definition file, reusing the last parsed definition if its content is unchanged.
+     * Returns null if the file is missing or can't be read.
+     */
+    private Shard<T> readShard(String id) {
+        Path file = fileOf(id);
+        if (file == null) {
+            NotEnoughRecipes.LOGGER.warn("Skipping indexed definition '{}': its id points outside {}", id, folder);
+            return null;
+        }
+        if (!Files.exists(file)) {
+            return null;
+        }
+        
+        try {
+            byte[] content = Files.readAllBytes(file);
+            String hash = hash(content);
+            Shard<T> known = shards.get(id);
+            if (known != null && hash.equals(known.hash())) {
+                return known;
+            }
+            
+            JsonObject json = JsonParser.parseString(new String(content, StandardCharsets.UTF_8)).getAsJsonObject();
+            return new Shard<>(hash, parser.apply(json));
+        } catch (Exception e) {
+            NotEnoughRecipes.LOGGER.error("Failed to load definition {}", file, e);
+            return null;
+        }
+    }
+    
+    private void readIndex() {
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        
+        try {
+            for (String line : Files.readAllLines(indexFile, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    index.add(line.strip());
+                }
+            }
+        } catch (IOException e) {
+            NotEnoughRecipes.LOGGER.warn("Failed to read {}, listing the folder instead: {}", indexFile, e.getMessage());
+        }
+    }
+    
+    private void writeIndex() {
+        try {
+            DynamicRegistryPersistence.writeAtomically(indexFile, index.isEmpty() ? "" : String.join("\n", index) + "\n");
+        } catch (IOException e) {
+            NotEnoughRecipes.LOGGER.error("Failed to save {}", indexFile, e);
+        }
+    }
+    
+    private void appendIndex(List<String> ids) {
+        try {
+            Files.writeString(indexFile, String.join("\n", ids) + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            NotEnoughRecipes.LOGGER.error("Failed to save {}", indexFile, e);
+        }
+    }
+    
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            DefinitionStore.WRITER.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Gets the file of a definition, or null if the id would put it outside the folder
+     * (such as one with {@code ..} segments or an absolute path).
+     */
+    private Path fileOf(String id) {
+        // Ids may contain '/', which become subfolders
+        Path root = folder.toAbsolutePath().normalize();
+        Path file = root.resolve(id + ".json").normalize();
+        return file.startsWith(root) ? file : null;
+    }
+    
+    private String idOfFile(Path file) {
+        String relative = folder.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+        return relative.substring(0, relative.length() - ".json".length());
+    }
+    
+    private static String hash(byte[] content) {
+        return Hashing.murmur3_128().hashBytes(content).toString();
+    }
+}
@@ -1,26 +1,53 @@
 package dev.scuffi.scripting;
 
 import dev.scuffi.NotEnoughRecipes;
+import dev.scuffi.scripting.api.BlockPosWrapper;
+import dev.scuffi.scripting.api.ItemStackWrapper;
+import dev.scuffi.scripting.api.PlayerWrapper;
+import dev.scuffi.scripting.api.WorldWrapper;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
 import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
 import org.graalvm.polyglot.HostAccess;
 import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
 import org.graalvm.polyglot.Value;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Manages GraalJS contexts and script execution.
  * Provides isolated JavaScript execution environments with configurable sandboxing.
+ * 
+ * Every script runs in its own context, so a single script can be reloaded or unloaded
+ * without touching the others. All contexts are created on a single process-wide
+ * {@link Engine}, so parsed sources and JIT-compiled code survive {@link #reload()} and
+ * server restarts within the same JVM.
  */
 public class ScriptEngine {
     
-    private Context context;
-    private final Map<String, Value> loadedScripts = new HashMap<>();
+    private static Engine sharedEngine;
+    
+    // Host access policies are immutable, so both are built once and shared by every context
+    private static final HostAccess EXPLICIT_ACCESS = createHostAccess(HostAccess.EXPLICIT);
+    private static final HostAccess ALL_ACCESS = createHostAccess(HostAccess.ALL);
+    
+    // Script name -> the context that script was evaluated in
+    private final Map<String, Context> scriptContexts = new LinkedHashMap<>();
+    // Bindings installed into every script context (e.g. the NER API)
+    private final Map<String, Object> globalBindings = new LinkedHashMap<>();
     private final ScriptConfig config;
     
     /**
@@ -30,6 +57,15 @@ public class ScriptEngine {
         public boolean allowFileAccess = false;
         public boolean allowNetworkAccess = false;
         public long maxExecutionTimeMs = 5000;
+        /** Persist the engine's code cache to disk (only on runtimes that support auxiliary engine caching). */
+        public boolean persistCodeCache = false;
+        /** File the code cache is loaded from and stored to when {@link #persistCodeCache} is enabled. */
+        public Path codeCachePath = null;
+        /**
+         * Only expose members annotated with {@link HostAccess.Export}; otherwise every public member is visible.
+         * Optional and off by default, since scripts can't use raw game objects returned by the API when it's on.
+         */
+        public boolean explicitHostAccess = false;
         
         public ScriptConfig() {}
         
@@ -46,35 +82,128 @@ public class ScriptEngine {
     
     public ScriptEngine(ScriptConfig config) {
         this.config = config;
-        initializeContext();
+        if (config.explicitHostAccess) {
+            NotEnoughRecipes.LOGGER.info("Scripts can only use host members annotated with @HostAccess.Export");
+        } else {
+            NotEnoughRecipes.LOGGER.info("Scripts can use every public member of host objects; "
+                    + "set sandbox.explicit_host_access to true to only expose @HostAccess.Export members");
+        }
+        // Create the shared engine eagerly so a broken GraalJS setup fails here, not on first script
+        getSharedEngine(config);
     }
     
     /**
-     * Initializes or re-initializes the GraalJS context with current config.
+     * Gets the process-wide GraalJS engine, creating it on first use.
+     * Contexts built on a shared engine share its source cache and compiled code, so
+     * re-evaluating an unchanged script after a reload skips parsing and warm-up.
+     * 
+     * Engine options are fixed at creation, so the code cache settings of the first
+     * config to reach this method win for the lifetime of the JVM.
      */
-    private void initializeContext() {
-        if (context != null) {
+    public static synchronized Engine getSharedEngine(ScriptConfig config) {
+        if (sharedEngine != null) {
+            return sharedEngine;
+        }
+        
+        if (config.persistCodeCache && config.codeCachePath != null) {
+            sharedEngine = createPersistentEngine(config.codeCachePath);
+        }
+        
+        if (sharedEngine == null) {
+            sharedEngine = newEngineBuilder().build();
+            NotEnoughRecipes.LOGGER.info("Created shared GraalJS engine");
+        }
+        
+        // The engine outlives individual servers; close it with the JVM so a persistent
+        // code cache gets written out
+        Engine engine = sharedEngine;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
-                context.close();
-            } catch (Exception e) {
-                NotEnoughRecipes.LOGGER.warn("Error closing previous context: {}", e.getMessage());
+                engine.close();
+            } catch (Exception ignored) {
+                // JVM is going away anyway
             }
-        }
+        }, "NER-ScriptEngine-Shutdown"));
         
+        return sharedEngine;
+    }
+    
+    /**
+     * Tries to build an engine that loads and stores its code cache at the given path.
+     * Auxiliary engine caching is only supported by some GraalVM distributions; when the
+     * options are rejected this returns null and the caller falls back to an in-memory engine.
+     */
+    private static Engine createPersistentEngine(Path cachePath) {
+        try {
+            Files.createDirectories(cachePath.getParent());
+            
+            Engine.Builder builder = newEngineBuilder()
+                    .allowExperimentalOptions(true)
+                    .option("engine.CacheStore", cachePath.toAbsolutePath().toString());
+            if (Files.exists(cachePath)) {
+                builder.option("engine.CacheLoad", cachePath.toAbsolutePath().toString());
+            }
+            
+            Engine engine = builder.build();
+            NotEnoughRecipes.LOGGER.info("Created shared GraalJS engine with persistent code cache at {}", cachePath);
+            return engine;
+        } catch (IllegalArgumentException e) {
+            NotEnoughRecipes.LOGGER.warn("Persistent code cache is not supported by this GraalVM runtime, using in-memory cache: {}",
+                    e.getMessage());
+        } catch (Exception e) {
+            NotEnoughRecipes.LOGGER.warn("Failed to create engine with persistent code cache: {}", e.getMessage());
+        }
+        return null;
+    }
+    
+    /**
+     * Builds a host access policy on top of a base policy.
+     * Wrappers passed to a Java method that takes the wrapped Minecraft type are converted by
+     * a type mapping, so the API only needs the raw-type overload of each method.
+     */
+    private static HostAccess createHostAccess(HostAccess base) {
+        HostAccess.Builder builder = HostAccess.newBuilder(base);
+        unwrap(builder, PlayerWrapper.class, Player.class, PlayerWrapper::getJavaObject);
+        unwrap(builder, WorldWrapper.class, Level.class, WorldWrapper::getJavaObject);
+        unwrap(builder, BlockPosWrapper.class, BlockPos.class, BlockPosWrapper::getJavaObject);
+        unwrap(builder, ItemStackWrapper.class, ItemStack.class, ItemStackWrapper::getJavaObject);
+        return builder.build();
+    }
+    
+    private static <W, T> void unwrap(HostAccess.Builder builder, Class<W> wrapperType, Class<T> targetType,
+                                      Function<W, T> unwrapper) {
+        builder.targetTypeMapping(Value.class, targetType,
+                value -> value.isHostObject() && wrapperType.isInstance(value.asHostObject()),
+                value -> unwrapper.apply(wrapperType.cast(value.asHostObject())));
+    }
+    
+    private static Engine.Builder newEngineBuilder() {
+        return Engine.newBuilder("js")
+                .option("engine.WarnInterpreterOnly", "false");
+    }
+    
+    /**
+     * Creates a fresh context for a script on the shared engine, with the global bindings installed.
+     */
+    private Context createContext() {
         try {
             // Build a minimal GraalJS context
             // Note: Many options don't exist in this version of GraalJS, so we keep it simple
             Context.Builder builder = Context.newBuilder("js")
-                    .allowHostAccess(HostAccess.ALL) // Allow access to Java classes
+                    .engine(getSharedEngine(config))
+                    .allowHostAccess(config.explicitHostAccess ? EXPLICIT_ACCESS : ALL_ACCESS)
                     .allowIO(config.allowFileAccess) // Control file I/O
                     .allowCreateThread(false) // Disable thread creation for safety
                     .allowNativeAccess(false); // Disable native access
             
-            context = builder.build();
+            Context context = builder.build();
             
-            NotEnoughRecipes.LOGGER.info("Initialized GraalJS context with sandbox: fileAccess={}, networkAccess={}",
-                    config.allowFileAccess, config.allowNetworkAccess);
+            Value bindings = context.getBindings("js");
+            for (Map.Entry<String, Object> binding : globalBindings.entrySet()) {
+                bindings.putMember(binding.getKey(), binding.getValue());
+            }
             
+            return context;
         } catch (Exception e) {
             NotEnoughRecipes.LOGGER.error("Failed to initialize GraalJS context", e);
             throw new RuntimeException("Failed to initialize script engine", e);
@@ -89,9 +218,22 @@ public class ScriptEngine {
      * @return true if script loaded successfully, false otherwise
      */
     public boolean loadScript(Path scriptPath, String scriptName) {
+        return loadScript(scriptPath, scriptName, Collections.emptyMap());
+    }
+    
+    /**
+     * Loads and evaluates a JavaScript file in its own context.
+     * If the script is already loaded, its previous context is closed first.
+     * 
+     * @param scriptPath Path to the JavaScript file
+     * @param scriptName Friendly name for the script (used in error messages)
+     * @param scriptBindings Extra bindings visible only to this script
+     * @return true if script loaded successfully, false otherwise
+     */
+    public boolean loadScript(Path scriptPath, String scriptName, Map<String, Object> scriptBindings) {
         try {
             String scriptContent = Files.readString(scriptPath);
-            return evaluateScript(scriptContent, scriptName);
+            return evaluateScript(buildSource(scriptContent, scriptName), scriptBindings);
         } catch (IOException e) {
             NotEnoughRecipes.LOGGER.error("Failed to read script file '{}': {}", scriptName, e.getMessage());
             return false;
@@ -106,43 +248,108 @@ public class ScriptEngine {
      * @return true if script evaluated successfully, false otherwise
      */
     public boolean evaluateScript(String scriptContent, String scriptName) {
+        return evaluateScript(buildSource(scriptContent, scriptName), Collections.emptyMap());
+    }
+    
+    /**
+     * Evaluates a prepared source in a new context.
+     * Sources are cached by the shared engine, so evaluating an unchanged script again
+     * reuses its parsed AST and compiled code.
+     */
+    private boolean evaluateScript(Source source, Map<String, Object> scriptBindings) {
+        String scriptName = source.getName();
+        unloadScript(scriptName);
+        
+        Context context = createContext();
         try {
-            Value result = context.eval("js", scriptContent);
-            loadedScripts.put(scriptName, result);
+            Value bindings = context.getBindings("js");
+            for (Map.Entry<String, Object> binding : scriptBindings.entrySet()) {
+                bindings.putMember(binding.getKey(), binding.getValue());
+            }
+            
+            context.eval(source);
+            scriptContexts.put(scriptName, context);
             NotEnoughRecipes.LOGGER.info("Successfully loaded script: {}", scriptName);
             return true;
         } catch (PolyglotException e) {
             NotEnoughRecipes.LOGGER.error("Script compilation error in '{}': {}", scriptName, formatScriptError(e));
-            return false;
         } catch (Exception e) {
             NotEnoughRecipes.LOGGER.error("Unexpected error loading script '{}': {}", scriptName, e.getMessage());
+        }
+        
+        // Keep the failed script's context around so handlers registered before the error stay valid
+        // until the script is reloaded; they're cleaned up together on the next unload
+        scriptContexts.put(scriptName, context);
+        return false;
+    }
+    
+    /**
+     * Builds a cached source for a script.
+     * The engine keys its cache on name and content, so an edited script is re-parsed
+     * while untouched scripts hit the cache.
+     */
+    private static Source buildSource(String scriptContent, String scriptName) {
+        return Source.newBuilder("js", scriptContent, scriptName)
+                .cached(true)
+                .buildLiteral();
+    }
+    
+    /**
+     * Closes the context of a single script.
+     * Callers must remove the script's event handlers first, since they belong to this context.
+     * 
+     * @param scriptName The name of the script to unload
+     * @return true if the script was loaded
+     */
+    public boolean unloadScript(String scriptName) {
+        Context context = scriptContexts.remove(scriptName);
+        if (context == null) {
             return false;
         }
+        
+        try {
+            context.close();
+        } catch (Exception e) {
+            NotEnoughRecipes.LOGGER.warn("Error closing context for script '{}': {}", scriptName, e.getMessage());
+        }
+        return true;
     }
     
     /**
-     * Binds a Java object to the JavaScript global scope.
+     * Binds a Java object to the JavaScript global scope of every script.
+     * Scripts loaded later receive the binding as well.
      * 
      * @param name The name to bind in JavaScript
      * @param object The Java object to expose
      */
     public void bindGlobal(String name, Object object) {
-        try {
-            context.getBindings("js").putMember(name, object);
-            NotEnoughRecipes.LOGGER.debug("Bound '{}' to JavaScript global scope", name);
-        } catch (Exception e) {
-            NotEnoughRecipes.LOGGER.error("Failed to bind '{}' to global scope: {}", name, e.getMessage());
+        globalBindings.put(name, object);
+        
+        for (Map.Entry<String, Context> entry : scriptContexts.entrySet()) {
+            try {
+                entry.getValue().getBindings("js").putMember(name, object);
+            } catch (Exception e) {
+                NotEnoughRecipes.LOGGER.error("Failed to bind '{}' for script '{}': {}", name, entry.getKey(), e.getMessage());
+            }
         }
+        NotEnoughRecipes.LOGGER.debug("Bound '{}' to JavaScript global scope", name);
     }
     
     /**
-     * Invokes a JavaScript function.
+     * Invokes a JavaScript function defined by a script.
      * 
+     * @param scriptName The script that defines the function
      * @param functionName The name of the function to invoke
      * @param args Arguments to pass to the function
      * @return The result of the function call, or null if invocation failed
      */
-    public Value invokeFunction(String functionName, Object... args) {
+    public Value invokeFunction(String scriptName, String functionName, Object... args) {
+        Context context = scriptContexts.get(scriptName);
+        if (context == null) {
+            NotEnoughRecipes.LOGGER.warn("Script '{}' is not loaded", scriptName);
+            return null;
+        }
+        
         try {
             Value bindings = context.getBindings("js");
             Value function = bindings.getMember(functionName);
@@ -163,28 +370,26 @@ public class ScriptEngine {
     }
     
     /**
-     * Clears all loaded scripts and resets the context.
+     * Closes every script context.
+     * The shared engine and its code cache are kept.
      */
     public void reload() {
         NotEnoughRecipes.LOGGER.info("Reloading script engine...");
-        loadedScripts.clear();
-        initializeContext();
+        closeAllContexts();
     }
     
     /**
-     * Closes the context and releases resources.
+     * Closes all script contexts and releases resources.
      */
     public void close() {
-        if (context != null) {
-            try {
-                context.close();
-                NotEnoughRecipes.LOGGER.info("Closed GraalJS context");
-            } catch (Exception e) {
-                NotEnoughRecipes.LOGGER.warn("Error closing context: {}", e.getMessage());
-            }
-            context = null;
+        closeAllContexts();
+        NotEnoughRecipes.LOGGER.info("Closed GraalJS contexts");
+    }
+    
+    private void closeAllContexts() {
+        for (String scriptName : new ArrayList<>(scriptContexts.keySet())) {
+            unloadScript(scriptName);
         }
-        loadedScripts.clear();
     }
     
     /**
@@ -205,11 +410,18 @@ public class ScriptEngine {
     }
     
     /**
-     * Gets the underlying GraalJS context.
+     * Gets the GraalJS context a script was evaluated in.
      * Use with caution - direct context manipulation can break sandboxing.
      */
-    public Context getContext() {
-        return context;
+    public Context getContext(String scriptName) {
+        return scriptContexts.get(scriptName);
+    }
+    
+    /**
+     * Gets the names of all loaded scripts.
+     */
+    public List<String> getLoadedScripts() {
+        return new ArrayList<>(scriptContexts.keySet());
     }
     
     /**
@@ -223,6 +435,6 @@ public class ScriptEngine {
      * Returns the number of loaded scripts.
      */
     public int getLoadedScriptCount() {
-        return loadedScripts.size();
+        return scriptContexts.size();
     }
 }
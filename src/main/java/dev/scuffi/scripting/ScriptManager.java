@@ -6,6 +6,9 @@ import com.google.gson.JsonObject;
 import dev.scuffi.NotEnoughRecipes;
 import dev.scuffi.scripting.api.NER;
 import dev.scuffi.scripting.events.EventBridge;
+import dev.scuffi.scripting.events.EventFilter;
+import dev.scuffi.scripting.events.EventHandler;
+import org.graalvm.polyglot.HostAccess;
 import org.graalvm.polyglot.Value;
 
 import java.io.IOException;
@@ -13,8 +16,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
 /**
@@ -28,6 +33,7 @@ public class ScriptManager {
     private final Path scriptsDirectory;
     private final Path configPath;
     private ScriptEngine scriptEngine;
+    private ScriptWatcher scriptWatcher;
     private final Map<String, Long> scriptModificationTimes = new HashMap<>();
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
     
@@ -38,12 +44,27 @@ public class ScriptManager {
      */
     public static class ScriptConfig {
         public boolean enabled = true;
+        public boolean hot_reload = true;
+        public long hot_reload_debounce_ms = 250;
         public SandboxConfig sandbox = new SandboxConfig();
         
         public static class SandboxConfig {
             public boolean allow_file_access = false;
             public boolean allow_network_access = false;
             public long max_execution_time_ms = 5000;
+            /** Total time one script's event handlers may use per server tick (0 = unlimited). */
+            public long tick_budget_ms = 20;
+            /** Time limit violations before a handler is disabled (0 = never). */
+            public int max_violations = 3;
+            /** Worker threads for Event.onAsync handlers. */
+            public int async_workers = 2;
+            public boolean persist_code_cache = false;
+            /**
+             * Optional: only expose members annotated with @HostAccess.Export to scripts. Stricter, but scripts can
+             * then no longer use raw game objects they get back from the API, such as the BlockPos from
+             * {@code pos.above()}, the Vec3 from {@code getPosition()} or what getEntity/getBlockState return.
+             */
+            public boolean explicit_host_access = false;
         }
     }
     
@@ -54,12 +75,7 @@ public class ScriptManager {
         
         // Initialize script engine with config
         try {
-            ScriptEngine.ScriptConfig engineConfig = new ScriptEngine.ScriptConfig(
-                    config.sandbox.allow_file_access,
-                    config.sandbox.allow_network_access,
-                    config.sandbox.max_execution_time_ms
-            );
-            this.scriptEngine = new ScriptEngine(engineConfig);
+            this.scriptEngine = new ScriptEngine(createEngineConfig());
             NotEnoughRecipes.LOGGER.info("Successfully created ScriptEngine");
         } catch (Exception e) {
             NotEnoughRecipes.LOGGER.error("Failed to create ScriptEngine, scripts will be disabled", e);
@@ -77,6 +93,17 @@ public class ScriptManager {
         NotEnoughRecipes.LOGGER.info("Initialized ScriptManager with directory: {}", scriptsDirectory);
     }
     
+    /**
+     * Starts a new handler tick budget and applies settled script file changes.
+     * Called on the server thread at the start of every tick.
+     */
+    public static void onServerTick() {
+        EventBridge.getInstance().onTickStart();
+        if (instance != null) {
+            instance.applyWatchedChanges();
+        }
+    }
+    
     public static ScriptManager getInstance() {
         if (instance == null) {
             throw new IllegalStateException("ScriptManager not initialized");
@@ -111,6 +138,21 @@ public class ScriptManager {
         return new ScriptConfig();
     }
     
+    /**
+     * Builds the script engine sandbox config from the current script config.
+     */
+    private ScriptEngine.ScriptConfig createEngineConfig() {
+        ScriptEngine.ScriptConfig engineConfig = new ScriptEngine.ScriptConfig(
+                config.sandbox.allow_file_access,
+                config.sandbox.allow_network_access,
+                config.sandbox.max_execution_time_ms
+        );
+        engineConfig.persistCodeCache = config.sandbox.persist_code_cache;
+        engineConfig.explicitHostAccess = config.sandbox.explicit_host_access;
+        engineConfig.codeCachePath = scriptsDirectory.resolve(".cache").resolve("engine.cache");
+        return engineConfig;
+    }
+    
     /**
      * Loads all scripts from the scripts directory.
      */
@@ -135,6 +177,10 @@ public class ScriptManager {
         
         // Set up global bindings before loading scripts
         setupGlobalBindings();
+        applyExecutionLimits();
+        
+        // Start watching before scanning so edits made while loading aren't missed
+        updateWatcher();
         
         // Find all .js files
         List<Path> scriptFiles = findScriptFiles();
@@ -150,19 +196,9 @@ public class ScriptManager {
         int failCount = 0;
         
         for (Path scriptPath : scriptFiles) {
-            String scriptName = scriptPath.getFileName().toString();
-            
-            try {
-                long modTime = Files.getLastModifiedTime(scriptPath).toMillis();
-                scriptModificationTimes.put(scriptName, modTime);
-                
-                if (scriptEngine.loadScript(scriptPath, scriptName)) {
-                    successCount++;
-                } else {
-                    failCount++;
-                }
-            } catch (Exception e) {
-                NotEnoughRecipes.LOGGER.error("Failed to load script '{}': {}", scriptName, e.getMessage());
+            if (loadScript(scriptPath)) {
+                successCount++;
+            } else {
                 failCount++;
             }
         }
@@ -171,6 +207,180 @@ public class ScriptManager {
         logEventHandlerStats();
     }
     
+    /**
+     * Loads (or reloads) a single script into its own context.
+     * Any handlers and context from a previous load of the same script are discarded first.
+     * 
+     * @return true if the script evaluated successfully
+     */
+    private boolean loadScript(Path scriptPath) {
+        String scriptName = scriptPath.getFileName().toString();
+        
+        try {
+            long modTime = Files.getLastModifiedTime(scriptPath).toMillis();
+            scriptModificationTimes.put(scriptName, modTime);
+            
+            // Handlers hold values from the old context, so drop them before it's closed
+            EventBridge.getInstance().clearScriptHandlers(scriptName);
+            return scriptEngine.loadScript(scriptPath, scriptName, Map.of("Event", new EventRegistrar(scriptName)));
+        } catch (Exception e) {
+            NotEnoughRecipes.LOGGER.error("Failed to load script '{}': {}", scriptName, e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Unloads a single script, removing its handlers and closing its context.
+     */
+    private void unloadScript(String scriptName) {
+        EventBridge.getInstance().clearScriptHandlers(scriptName);
+        scriptEngine.unloadScript(scriptName);
+        scriptModificationTimes.remove(scriptName);
+        NotEnoughRecipes.LOGGER.info("Unloaded script: {}", scriptName);
+    }
+    
+    /**
+     * Reloads only the scripts whose files were added, modified or deleted since they were last loaded.
+     * Unchanged scripts keep their contexts and handlers untouched.
+     * 
+     * @return the number of scripts that were loaded, reloaded or unloaded
+     */
+    public int reloadChangedScripts() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        
+        Set<String> scriptNames = new HashSet<>(scriptModificationTimes.keySet());
+        for (Path scriptPath : findScriptFiles()) {
+            scriptNames.add(scriptPath.getFileName().toString());
+        }
+        return reloadScripts(scriptNames);
+    }
+    
+    /**
+     * Reloads the given scripts if their files changed since they were last loaded.
+     * Scripts whose files no longer exist are unloaded.
+     * 
+     * @param scriptNames File names of the scripts to check
+     * @return the number of scripts that were loaded, reloaded or unloaded
+     */
+    public int reloadScripts(Set<String> scriptNames) {
+        int changed = 0;
+        
+        for (String scriptName : scriptNames) {
+            if (reloadIfChanged(scriptName)) {
+                changed++;
+            }
+        }
+        
+        if (changed > 0) {
+            logEventHandlerStats();
+        }
+        return changed;
+    }
+    
+    /**
+     * Compares a script's modification time with the one recorded at load and reloads it if they differ.
+     */
+    private boolean reloadIfChanged(String scriptName) {
+        Path scriptPath = scriptsDirectory.resolve(scriptName);
+        Long knownModTime = scriptModificationTimes.get(scriptName);
+        
+        if (!Files.isRegularFile(scriptPath)) {
+            if (knownModTime == null) {
+                return false;
+            }
+            unloadScript(scriptName);
+            return true;
+        }
+        
+        long modTime;
+        try {
+            modTime = Files.getLastModifiedTime(scriptPath).toMillis();
+        } catch (IOException e) {
+            NotEnoughRecipes.LOGGER.warn("Failed to stat script '{}': {}", scriptName, e.getMessage());
+            return false;
+        }
+        
+        if (knownModTime != null && knownModTime == modTime) {
+            return false;
+        }
+        
+        NotEnoughRecipes.LOGGER.info("{} script: {}", knownModTime == null ? "Loading new" : "Reloading changed", scriptName);
+        loadScript(scriptPath);
+        return true;
+    }
+    
+    /**
+     * Applies any settled batch of file changes reported by the watcher.
+     */
+    private void applyWatchedChanges() {
+        if (scriptWatcher == null || !isEnabled()) {
+            return;
+        }
+        
+        ScriptWatcher.ChangeBatch batch = scriptWatcher.pollSettledChanges();
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        try {
+            int changed = batch.fullRescan() ? reloadChangedScripts() : reloadScripts(batch.scriptNames());
+            if (changed > 0) {
+                NotEnoughRecipes.LOGGER.info("Hot reloaded {} script(s)", changed);
+            }
+        } catch (Exception e) {
+            NotEnoughRecipes.LOGGER.error("Failed to hot reload scripts", e);
+        }
+    }
+    
+    /**
+     * Starts or stops the directory watcher to match the current config.
+     */
+    private void updateWatcher() {
+        boolean wanted = config.enabled && config.hot_reload && scriptEngine != null;
+        
+        if (!wanted) {
+            stopWatcher();
+            return;
+        }
+        if (scriptWatcher != null) {
+            return;
+        }
+        
+        try {
+            scriptWatcher = new ScriptWatcher(scriptsDirectory, config.hot_reload_debounce_ms);
+            scriptWatcher.start();
+        } catch (Exception e) {
+            NotEnoughRecipes.LOGGER.warn("Failed to watch scripts directory, hot reload disabled: {}", e.getMessage());
+            scriptWatcher = null;
+        }
+    }
+    
+    private void stopWatcher() {
+        if (scriptWatcher != null) {
+            scriptWatcher.stop();
+            scriptWatcher = null;
+        }
+    }
+    
+    /**
+     * Passes the handler time limits and async worker settings from the sandbox config to the event bridge.
+     */
+    private void applyExecutionLimits() {
+        EventBridge.getInstance().setExecutionLimits(
+                config.sandbox.max_execution_time_ms,
+                config.sandbox.tick_budget_ms,
+                config.sandbox.max_violations
+        );
+        if (scriptEngine != null) {
+            EventBridge.getInstance().configureAsync(
+                    ScriptEngine.getSharedEngine(scriptEngine.getConfig()),
+                    config.sandbox.async_workers
+            );
+        }
+    }
+    
     /**
      * Finds all .js files in the scripts directory.
      */
@@ -190,57 +400,156 @@ public class ScriptManager {
     
     /**
      * Sets up global JavaScript bindings.
+     * The Event object is bound per script in {@link #loadScript(Path)} so registrations know their owner.
      */
     private void setupGlobalBindings() {
         // Bind the NER helper API
         scriptEngine.bindGlobal("NER", new NER());
         
-        // Create and bind the Event object with registration functionality
-        EventRegistrar eventRegistrar = new EventRegistrar();
-        scriptEngine.bindGlobal("Event", eventRegistrar);
-        
         NotEnoughRecipes.LOGGER.debug("Set up global JavaScript bindings");
     }
     
     /**
      * JavaScript-facing Event object for registering handlers.
+     * Each script gets its own instance so handlers can be removed per script.
      */
     public static class EventRegistrar {
-        private String currentScriptName = "unknown";
+        private final String scriptName;
         
-        public void setCurrentScript(String name) {
-            this.currentScriptName = name;
+        public EventRegistrar(String scriptName) {
+            this.scriptName = scriptName;
         }
         
         /**
          * Registers an event handler.
          * Called from JavaScript: Event.on("event_name", callback)
          */
+        @HostAccess.Export
         public void on(String eventName, Value callback) {
-            EventBridge.getInstance().registerEventHandler(eventName, callback, currentScriptName);
+            EventBridge.getInstance().registerEventHandler(eventName, callback, scriptName);
+        }
+        
+        /**
+         * Registers an event handler that runs on a schedule, or only for matching events.
+         * Called from JavaScript:
+         *   Event.on("players_tick", callback, { interval: 20, staggered: true })
+         *   Event.on("item_use", { item: "ruby_wand" }, callback)
+         * 
+         * With only an interval the handler runs every N ticks. With staggered set it runs every
+         * tick for the players whose turn it is, so each player is handled once every N ticks.
+         * A filter is checked in Java, so events it rejects never call into JavaScript.
+         */
+        @HostAccess.Export
+        public void on(String eventName, Value callbackOrFilter, Value optionsOrCallback) {
+            if (callbackOrFilter.canExecute()) {
+                on(eventName, null, callbackOrFilter, optionsOrCallback);
+            } else {
+                on(eventName, callbackOrFilter, optionsOrCallback, null);
+            }
+        }
+        
+        /**
+         * Registers a filtered event handler that runs on a schedule.
+         * Called from JavaScript: Event.on("player_tick", { dimension: "the_nether" }, callback, { interval: 20 })
+         */
+        @HostAccess.Export
+        public void on(String eventName, Value filter, Value callback, Value options) {
+            EventFilter compiled = null;
+            if (filter != null && !filter.isNull()) {
+                try {
+                    compiled = EventFilter.compile(filter);
+                } catch (IllegalArgumentException e) {
+                    NotEnoughRecipes.LOGGER.warn("Script '{}' has an invalid filter for event '{}': {}",
+                            scriptName, eventName, e.getMessage());
+                    return;
+                }
+            }
+            
+            EventBridge.getInstance().registerEventHandler(eventName, callback, scriptName, parseSchedule(options), compiled);
+        }
+        
+        /**
+         * Registers an event handler that runs off the server thread.
+         * Called from JavaScript: Event.onAsync("player_join", (event, commands) => { ... })
+         * 
+         * The function can't use the script's top-level variables or NER. It gets a read-only
+         * snapshot of the event and a command buffer whose actions run at the end of the tick.
+         */
+        @HostAccess.Export
+        public void onAsync(String eventName, Value callback) {
+            onAsync(eventName, null, callback);
+        }
+        
+        /**
+         * Registers a filtered event handler that runs off the server thread.
+         * Called from JavaScript: Event.onAsync("entity_death", { entityType: "zombie" }, callback)
+         */
+        @HostAccess.Export
+        public void onAsync(String eventName, Value filter, Value callback) {
+            EventFilter compiled = null;
+            if (filter != null && !filter.isNull()) {
+                try {
+                    compiled = EventFilter.compile(filter);
+                } catch (IllegalArgumentException e) {
+                    NotEnoughRecipes.LOGGER.warn("Script '{}' has an invalid filter for event '{}': {}",
+                            scriptName, eventName, e.getMessage());
+                    return;
+                }
+            }
+            
+            EventBridge.getInstance().registerAsyncHandler(eventName, callback, scriptName, compiled);
+        }
+        
+        private static EventHandler.Schedule parseSchedule(Value options) {
+            if (options == null || options.isNull() || !options.hasMembers()) {
+                return EventHandler.Schedule.EVERY_TICK;
+            }
+            
+            Value interval = options.getMember("interval");
+            Value staggered = options.getMember("staggered");
+            return new EventHandler.Schedule(
+                    interval != null && interval.fitsInInt() ? interval.asInt() : 1,
+                    staggered != null && staggered.isBoolean() && staggered.asBoolean()
+            );
         }
     }
     
     /**
-     * Reloads all scripts from disk.
+     * Reloads scripts from disk.
+     * If the sandbox config is unchanged only modified, new and deleted scripts are reloaded;
+     * otherwise every script context is rebuilt with the new settings.
      */
     public void reload() {
-        NotEnoughRecipes.LOGGER.info("Reloading all scripts...");
-        
-        // Clear all event handlers
-        EventBridge.getInstance().clearAllHandlers();
+        NotEnoughRecipes.LOGGER.info("Reloading scripts...");
         
         // Reload config
+        ScriptConfig previousConfig = config;
         config = loadConfig();
         
+        if (scriptEngine != null && config.enabled && previousConfig.enabled
+                && sameSandbox(previousConfig.sandbox, config.sandbox)) {
+            // Restart the watcher if its settings changed
+            if (previousConfig.hot_reload_debounce_ms != config.hot_reload_debounce_ms) {
+                stopWatcher();
+            }
+            updateWatcher();
+            applyExecutionLimits();
+            
+            int changed = reloadChangedScripts();
+            NotEnoughRecipes.LOGGER.info("Script reload complete: {} script(s) changed", changed);
+            return;
+        }
+        
+        // Clear all event handlers
+        EventBridge.getInstance().clearAllHandlers();
+        stopWatcher();
+        
         // Reinitialize script engine with new config
-        ScriptEngine.ScriptConfig engineConfig = new ScriptEngine.ScriptConfig(
-                config.sandbox.allow_file_access,
-                config.sandbox.allow_network_access,
-                config.sandbox.max_execution_time_ms
-        );
-        scriptEngine.close();
-        scriptEngine = new ScriptEngine(engineConfig);
+        // The shared GraalJS engine is kept, so unchanged scripts reuse their compiled code
+        if (scriptEngine != null) {
+            scriptEngine.close();
+        }
+        scriptEngine = new ScriptEngine(createEngineConfig());
         
         // Clear modification times
         scriptModificationTimes.clear();
@@ -251,6 +560,14 @@ public class ScriptManager {
         NotEnoughRecipes.LOGGER.info("Script reload complete");
     }
     
+    private static boolean sameSandbox(ScriptConfig.SandboxConfig a, ScriptConfig.SandboxConfig b) {
+        return a.allow_file_access == b.allow_file_access
+                && a.allow_network_access == b.allow_network_access
+                && a.max_execution_time_ms == b.max_execution_time_ms
+                && a.persist_code_cache == b.persist_code_cache
+                && a.explicit_host_access == b.explicit_host_access;
+    }
+    
     /**
      * Logs statistics about registered event handlers.
      */
@@ -276,11 +593,15 @@ public class ScriptManager {
     public void shutdown() {
         NotEnoughRecipes.LOGGER.info("Shutting down ScriptManager...");
         
+        stopWatcher();
+        
+        // Handlers reference values owned by the script contexts, so drop them first
+        EventBridge.getInstance().clearAllHandlers();
+        
         if (scriptEngine != null) {
             scriptEngine.close();
         }
         
-        EventBridge.getInstance().clearAllHandlers();
         scriptModificationTimes.clear();
         
         NotEnoughRecipes.LOGGER.info("ScriptManager shut down");
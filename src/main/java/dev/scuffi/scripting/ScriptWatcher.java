@@ -0,0 +1,154 @@
+package dev.scuffi.scripting;
+
+import dev.scuffi.NotEnoughRecipes;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watches the scripts directory for created, modified and deleted .js files.
+ *
+ * Events are collected on a background thread and only handed out once the directory has
+ * been quiet for the debounce interval, so a burst of writes (e.g. an agent saving several
+ * scripts at once) turns into a single batch. The batch is applied by the caller on the
+ * server thread.
+ */
+public class ScriptWatcher {
+
+    private final Path directory;
+    private final long debounceMs;
+
+    // Script file names with pending changes
+    private final Set<String> pendingChanges = ConcurrentHashMap.newKeySet();
+    // Set when the watch service dropped events and the whole directory must be rescanned
+    private volatile boolean overflowed = false;
+    private volatile long lastEventMillis = 0;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * A settled batch of changes.
+     *
+     * @param scriptNames File names of the scripts that changed
+     * @param fullRescan True if events were lost and every script should be checked
+     */
+    public record ChangeBatch(Set<String> scriptNames, boolean fullRescan) {
+        static final ChangeBatch EMPTY = new ChangeBatch(Collections.emptySet(), false);
+
+        public boolean isEmpty() {
+            return scriptNames.isEmpty() && !fullRescan;
+        }
+    }
+
+    public ScriptWatcher(Path directory, long debounceMs) {
+        this.directory = directory;
+        this.debounceMs = debounceMs;
+    }
+
+    /**
+     * Starts watching the directory on a daemon thread.
+     */
+    public void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+
+        thread = new Thread(this::run, "NER-ScriptWatcher");
+        thread.setDaemon(true);
+        thread.start();
+
+        NotEnoughRecipes.LOGGER.info("Watching {} for script changes (debounce {} ms)", directory, debounceMs);
+    }
+
+    /**
+     * Stops watching and discards any pending changes.
+     */
+    public void stop() {
+        if (watchService != null) {
+            try {
+                // Wakes the watcher thread with ClosedWatchServiceException
+                watchService.close();
+            } catch (IOException e) {
+                NotEnoughRecipes.LOGGER.warn("Error closing script watch service: {}", e.getMessage());
+            }
+            watchService = null;
+        }
+        thread = null;
+        pendingChanges.clear();
+        overflowed = false;
+    }
+
+    private void run() {
+        WatchService service = watchService;
+        try {
+            while (true) {
+                WatchKey key = service.take();
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        overflowed = true;
+                    } else if (event.context() instanceof Path changed) {
+                        String fileName = changed.getFileName().toString();
+                        if (fileName.endsWith(".js")) {
+                            pendingChanges.add(fileName);
+                        }
+                    }
+                }
+                lastEventMillis = System.currentTimeMillis();
+
+                if (!key.reset()) {
+                    NotEnoughRecipes.LOGGER.warn("Scripts directory {} is no longer accessible, hot reload stopped", directory);
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Stopped
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes the pending changes if the directory has been quiet for the debounce interval.
+     * Returns an empty batch while changes are still arriving.
+     */
+    public ChangeBatch pollSettledChanges() {
+        if (pendingChanges.isEmpty() && !overflowed) {
+            return ChangeBatch.EMPTY;
+        }
+        if (System.currentTimeMillis() - lastEventMillis < debounceMs) {
+            return ChangeBatch.EMPTY;
+        }
+
+        boolean fullRescan = overflowed;
+        overflowed = false;
+
+        Set<String> drained = new HashSet<>();
+        for (String name : pendingChanges) {
+            if (pendingChanges.remove(name)) {
+                drained.add(name);
+            }
+        }
+        return new ChangeBatch(drained, fullRescan);
+    }
+
+    public boolean isRunning() {
+        return thread != null;
+    }
+}
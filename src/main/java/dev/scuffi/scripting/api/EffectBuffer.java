@@ -0,0 +1,132 @@
+package dev.scuffi.scripting.api;
+
+import com.google.common.collect.MapMaker;
+import net.minecraft.core.Holder;
+import net.minecraft.core.particles.ParticleOptions;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientGamePacketListener;
+import net.minecraft.network.protocol.game.ClientboundBundlePacket;
+import net.minecraft.network.protocol.game.ClientboundLevelParticlesPacket;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.sounds.SoundEvent;
+import net.minecraft.sounds.SoundSource;
+import net.minecraft.world.level.Level;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects the particles and sounds scripts emit in a level during a tick and sends them at
+ * the end of the tick.
+ * 
+ * Emissions of the same particle at the same position are merged into one packet with a
+ * higher count, and identical sounds are played once, so a script that emits in a loop
+ * sends one packet per distinct emission instead of one per call. The particle packets of a
+ * tick go to each player in range as one bundle, so a shape of many points arrives together.
+ * Only used on the server thread.
+ */
+public final class EffectBuffer {
+    
+    private static final ConcurrentMap<ServerLevel, EffectBuffer> BUFFERS = new MapMaker().weakKeys().makeMap();
+    
+    // Distance within which players are sent particles, as in ServerLevel.sendParticles
+    private static final double PARTICLE_RANGE = 32;
+    // Packets per bundle, well under the 4096 the client accepts
+    private static final int MAX_BUNDLE_SIZE = 1024;
+    
+    private record Particle(ParticleOptions type, double x, double y, double z) {}
+    
+    private record Sound(Holder<SoundEvent> sound, double x, double y, double z, float volume, float pitch) {}
+    
+    private final ServerLevel level;
+    // Particle -> count, in emission order
+    private final Map<Particle, int[]> particles = new LinkedHashMap<>();
+    private final Set<Sound> sounds = new LinkedHashSet<>();
+    
+    private EffectBuffer(ServerLevel level) {
+        this.level = level;
+    }
+    
+    /**
+     * Gets the buffer for a level, or null for client-side levels.
+     */
+    public static EffectBuffer of(Level level) {
+        return level instanceof ServerLevel serverLevel ? BUFFERS.computeIfAbsent(serverLevel, EffectBuffer::new) : null;
+    }
+    
+    /**
+     * Sends everything buffered in every level. Called on the server thread at the end of every tick.
+     */
+    public static void flushAll() {
+        for (EffectBuffer buffer : BUFFERS.values()) {
+            buffer.flush();
+        }
+    }
+    
+    public static void clear() {
+        BUFFERS.clear();
+    }
+    
+    public void addParticle(ParticleOptions type, double x, double y, double z, int count) {
+        particles.computeIfAbsent(new Particle(type, x, y, z), k -> new int[1])[0] += count;
+    }
+    
+    public void addSound(Holder<SoundEvent> sound, double x, double y, double z, float volume, float pitch) {
+        sounds.add(new Sound(sound, x, y, z, volume, pitch));
+    }
+    
+    private void flush() {
+        if (!particles.isEmpty()) {
+            sendParticles();
+            particles.clear();
+        }
+        
+        if (!sounds.isEmpty()) {
+            for (Sound sound : sounds) {
+                level.playSound(null, sound.x(), sound.y(), sound.z(), sound.sound(), SoundSource.PLAYERS, sound.volume(), sound.pitch());
+            }
+            sounds.clear();
+        }
+    }
+    
+    private void sendParticles() {
+        List<Particle> positions = new ArrayList<>(particles.size());
+        List<ClientboundLevelParticlesPacket> packets = new ArrayList<>(particles.size());
+        for (Map.Entry<Particle, int[]> entry : particles.entrySet()) {
+            Particle particle = entry.getKey();
+            positions.add(particle);
+            packets.add(new ClientboundLevelParticlesPacket(particle.type(), false, false,
+                    particle.x(), particle.y(), particle.z(), 0, 0, 0, 0, entry.getValue()[0]));
+        }
+        
+        for (ServerPlayer player : level.players()) {
+            List<Packet<? super ClientGamePacketListener>> bundle = new ArrayList<>();
+            for (int i = 0; i < packets.size(); i++) {
+                Particle particle = positions.get(i);
+                if (player.distanceToSqr(particle.x(), particle.y(), particle.z()) > PARTICLE_RANGE * PARTICLE_RANGE) {
+                    continue;
+                }
+                bundle.add(packets.get(i));
+                if (bundle.size() == MAX_BUNDLE_SIZE) {
+                    send(player, bundle);
+                    bundle = new ArrayList<>();
+                }
+            }
+            send(player, bundle);
+        }
+    }
+    
+    private static void send(ServerPlayer player, List<Packet<? super ClientGamePacketListener>> packets) {
+        if (packets.size() == 1) {
+            player.connection.send(packets.get(0));
+        } else if (!packets.isEmpty()) {
+            player.connection.send(new ClientboundBundlePacket(packets));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package dev.scuffi.scripting.api;
+
+import com.google.common.collect.MapMaker;
+import dev.scuffi.registry.DynamicRegistryHelper;
+import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Item counts and slots of a player's inventory, for the NER inventory queries.
+ * 
+ * The summary is rebuilt at most once per player tick, on the first query, and shared by
+ * every handler that queries the same player in that tick. Changes NER makes itself (such
+ * as {@code giveItem}) invalidate it right away; changes made by anything else show up on
+ * the next tick.
+ */
+final class InventorySummary {
+    
+    private static final ConcurrentMap<Player, InventorySummary> SUMMARIES = new MapMaker().weakKeys().makeMap();
+    private static final int[] NO_SLOTS = new int[0];
+    
+    /**
+     * Count and slots of one item in the inventory.
+     */
+    private static final class Entry {
+        int count;
+        int[] slots = new int[4];
+        int slotCount;
+        
+        void add(int slot, int amount) {
+            count += amount;
+            if (slotCount == slots.length) {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+            slots[slotCount++] = slot;
+        }
+    }
+    
+    private final Map<Item, Entry> byItem = new IdentityHashMap<>();
+    private final Map<String, Entry> byNerId = new HashMap<>();
+    private int builtAtTick = -1;
+    
+    private InventorySummary() {}
+    
+    /**
+     * Gets the up to date summary of a player's inventory.
+     */
+    static InventorySummary of(Player player) {
+        InventorySummary summary = SUMMARIES.computeIfAbsent(player, p -> new InventorySummary());
+        if (summary.builtAtTick != player.tickCount) {
+            summary.rebuild(player.getInventory());
+            summary.builtAtTick = player.tickCount;
+        }
+        return summary;
+    }
+    
+    /**
+     * Forces the next query for a player to rebuild the summary.
+     */
+    static void invalidate(Player player) {
+        InventorySummary summary = SUMMARIES.get(player);
+        if (summary != null) {
+            summary.builtAtTick = -1;
+        }
+    }
+    
+    private void rebuild(Inventory inventory) {
+        byItem.clear();
+        byNerId.clear();
+        
+        for (int slot = 0; slot < inventory.getContainerSize(); slot++) {
+            ItemStack stack = inventory.getItem(slot);
+            if (stack.isEmpty()) {
+                continue;
+            }
+            
+            Item item = stack.getItem();
+            Entry entry = byItem.get(item);
+            if (entry == null) {
+                entry = new Entry();
+                byItem.put(item, entry);
+                
+                String nerId = DynamicRegistryHelper.getNerItemId(item);
+                if (nerId != null) {
+                    byNerId.put(nerId, entry);
+                }
+            }
+            entry.add(slot, stack.getCount());
+        }
+    }
+    
+    int count(Item item) {
+        Entry entry = byItem.get(item);
+        return entry != null ? entry.count : 0;
+    }
+    
+    int count(String nerItemId) {
+        Entry entry = byNerId.get(nerItemId);
+        return entry != null ? entry.count : 0;
+    }
+    
+    int[] slots(Item item) {
+        return slots(byItem.get(item));
+    }
+    
+    int[] slots(String nerItemId) {
+        return slots(byNerId.get(nerItemId));
+    }
+    
+    private static int[] slots(Entry entry) {
+        return entry != null ? Arrays.copyOf(entry.slots, entry.slotCount) : NO_SLOTS;
+    }
+}
@@ -3,14 +3,14 @@ package dev.scuffi.scripting.api;
 import dev.scuffi.NotEnoughRecipes;
 import dev.scuffi.registry.DynamicRegistryHelper;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Holder;
 import net.minecraft.core.particles.ParticleOptions;
-import net.minecraft.core.particles.ParticleTypes;
+import net.minecraft.core.particles.SimpleParticleType;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.Identifier;
-import net.minecraft.server.level.ServerLevel;
+import net.minecraft.sounds.SoundEvent;
 import net.minecraft.sounds.SoundEvents;
-import net.minecraft.sounds.SoundSource;
 import net.minecraft.world.effect.MobEffect;
 import net.minecraft.world.effect.MobEffectInstance;
 import net.minecraft.world.entity.EquipmentSlot;
@@ -21,29 +21,46 @@ import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.Vec3;
 import net.minecraft.world.InteractionHand;
 import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.proxy.ProxyArray;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Main helper API exported to JavaScript as global `NER` object.
  * Provides convenient methods for common operations in scripts.
+ * 
+ * Methods take the raw Minecraft types. Wrappers passed from scripts (e.g. {@code event.player})
+ * are converted by the type mappings in the script engine's host access policy.
  */
 public class NER {
     
     // === Item Checks ===
     
     /**
-     * Checks if a player is holding a specific item in either hand.
+     * Resolves an item id to an item handle that scripts can keep and pass to the item checks,
+     * which then compare by reference instead of by id.
+     * Ids without a namespace refer to NER items.
+     * 
+     * @return the item, or null if no such item is registered
      */
     @HostAccess.Export
-    public boolean isHolding(Player player, String itemId) {
-        return isHolding(player, itemId, "MAIN_HAND") || isHolding(player, itemId, "OFF_HAND");
+    public Item item(String itemId) {
+        Identifier id = Identifier.tryParse(itemId.contains(":") ? itemId : NotEnoughRecipes.MOD_ID + ":" + itemId);
+        if (id == null || !BuiltInRegistries.ITEM.containsKey(id)) {
+            return null;
+        }
+        return BuiltInRegistries.ITEM.getValue(id);
     }
     
     /**
-     * Checks if a player is holding a specific item in either hand (wrapper overload).
+     * Checks if a player is holding a specific item in either hand.
      */
     @HostAccess.Export
-    public boolean isHolding(PlayerWrapper player, String itemId) {
-        return isHolding(player.getJavaObject(), itemId);
+    public boolean isHolding(Player player, String itemId) {
+        return isHolding(player, itemId, "MAIN_HAND") || isHolding(player, itemId, "OFF_HAND");
     }
     
     /**
@@ -57,11 +74,20 @@ public class NER {
     }
     
     /**
-     * Checks if a player is holding a specific item in a specific hand (wrapper overload).
+     * Checks if a player is holding an item handle from {@link #item(String)} in either hand.
      */
     @HostAccess.Export
-    public boolean isHolding(PlayerWrapper player, String itemId, String hand) {
-        return isHolding(player.getJavaObject(), itemId, hand);
+    public boolean isHolding(Player player, Item item) {
+        return player.getMainHandItem().is(item) || player.getOffhandItem().is(item);
+    }
+    
+    /**
+     * Checks if a player is holding an item handle from {@link #item(String)} in a specific hand.
+     */
+    @HostAccess.Export
+    public boolean isHolding(Player player, Item item, String hand) {
+        InteractionHand interactionHand = hand.equals("OFF_HAND") ? InteractionHand.OFF_HAND : InteractionHand.MAIN_HAND;
+        return player.getItemInHand(interactionHand).is(item);
     }
     
     /**
@@ -87,50 +113,69 @@ public class NER {
     }
     
     /**
-     * Checks if a player is wearing a specific item in an armor slot (wrapper overload).
+     * Checks if a player has a specific item in their inventory.
+     * Inventory queries share one summary of the inventory per player per tick.
      */
     @HostAccess.Export
-    public boolean isWearing(PlayerWrapper player, String itemId, String slot) {
-        return isWearing(player.getJavaObject(), itemId, slot);
+    public boolean hasInInventory(Player player, String itemId) {
+        return InventorySummary.of(player).count(itemId) > 0;
     }
     
     /**
-     * Checks if a player has a specific item in their inventory.
+     * Checks if a player has an item handle from {@link #item(String)} in their inventory.
      */
     @HostAccess.Export
-    public boolean hasInInventory(Player player, String itemId) {
-        for (int i = 0; i < player.getInventory().getContainerSize(); i++) {
-            ItemStack stack = player.getInventory().getItem(i);
-            if (isCustomItem(stack, itemId)) {
-                return true;
-            }
-        }
-        return false;
+    public boolean hasInInventory(Player player, Item item) {
+        return InventorySummary.of(player).count(item) > 0;
     }
     
     /**
-     * Checks if a player has a specific item in their inventory (wrapper overload).
+     * Counts how many of a specific item a player has in their inventory.
      */
     @HostAccess.Export
-    public boolean hasInInventory(PlayerWrapper player, String itemId) {
-        return hasInInventory(player.getJavaObject(), itemId);
+    public int countInInventory(Player player, String itemId) {
+        return InventorySummary.of(player).count(itemId);
     }
     
     /**
-     * Gets the item stack in a specific hand.
+     * Counts how many of an item handle from {@link #item(String)} a player has in their inventory.
      */
     @HostAccess.Export
-    public ItemStack getHeldItem(Player player, String hand) {
-        InteractionHand interactionHand = hand.equals("OFF_HAND") ? InteractionHand.OFF_HAND : InteractionHand.MAIN_HAND;
-        return player.getItemInHand(interactionHand);
+    public int countInInventory(Player player, Item item) {
+        return InventorySummary.of(player).count(item);
     }
     
     /**
-     * Gets the item stack in a specific hand (wrapper overload).
+     * Gets the inventory slots holding a specific item, in slot order.
      */
     @HostAccess.Export
-    public ItemStack getHeldItem(PlayerWrapper player, String hand) {
-        return getHeldItem(player.getJavaObject(), hand);
+    public ProxyArray findSlots(Player player, String itemId) {
+        return slotArray(InventorySummary.of(player).slots(itemId));
+    }
+    
+    /**
+     * Gets the inventory slots holding an item handle from {@link #item(String)}, in slot order.
+     */
+    @HostAccess.Export
+    public ProxyArray findSlots(Player player, Item item) {
+        return slotArray(InventorySummary.of(player).slots(item));
+    }
+    
+    private static ProxyArray slotArray(int[] slots) {
+        Object[] values = new Object[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            values[i] = slots[i];
+        }
+        return ProxyArray.fromArray(values);
+    }
+    
+    /**
+     * Gets the item stack in a specific hand.
+     */
+    @HostAccess.Export
+    public ItemStack getHeldItem(Player player, String hand) {
+        InteractionHand interactionHand = hand.equals("OFF_HAND") ? InteractionHand.OFF_HAND : InteractionHand.MAIN_HAND;
+        return player.getItemInHand(interactionHand);
     }
     
     // === Custom Item Utilities ===
@@ -144,21 +189,16 @@ public class NER {
             return false;
         }
         
-        Identifier id = BuiltInRegistries.ITEM.getKey(stack.getItem());
-        if (id == null) {
-            return false;
-        }
-        
-        // Check if it's an NER item with the matching path
-        return id.getNamespace().equals(NotEnoughRecipes.MOD_ID) && id.getPath().equals(itemId);
+        String id = DynamicRegistryHelper.getNerItemId(stack.getItem());
+        return id != null && id.equals(itemId);
     }
     
     /**
-     * Checks if an ItemStack is a specific custom NER item (wrapper overload).
+     * Checks if an ItemStack is an item handle from {@link #item(String)}.
      */
     @HostAccess.Export
-    public boolean isCustomItem(ItemStackWrapper stack, String itemId) {
-        return isCustomItem(stack.getJavaObject(), itemId);
+    public boolean isCustomItem(ItemStack stack, Item item) {
+        return stack != null && !stack.isEmpty() && stack.is(item);
     }
     
     /**
@@ -170,20 +210,7 @@ public class NER {
             return null;
         }
         
-        Identifier id = BuiltInRegistries.ITEM.getKey(stack.getItem());
-        if (id != null && id.getNamespace().equals(NotEnoughRecipes.MOD_ID)) {
-            return id.getPath();
-        }
-        
-        return null;
-    }
-    
-    /**
-     * Gets the custom item ID from an ItemStack (wrapper overload).
-     */
-    @HostAccess.Export
-    public String getCustomItemId(ItemStackWrapper stack) {
-        return getCustomItemId(stack.getJavaObject());
+        return DynamicRegistryHelper.getNerItemId(stack.getItem());
     }
     
     /**
@@ -195,34 +222,30 @@ public class NER {
             return false;
         }
         
-        Identifier id = BuiltInRegistries.ITEM.getKey(stack.getItem());
-        return id != null && id.getNamespace().equals(NotEnoughRecipes.MOD_ID);
-    }
-    
-    /**
-     * Checks if an ItemStack is any custom NER item (wrapper overload).
-     */
-    @HostAccess.Export
-    public boolean isAnyCustomItem(ItemStackWrapper stack) {
-        return isAnyCustomItem(stack.getJavaObject());
+        return DynamicRegistryHelper.getNerItemId(stack.getItem()) != null;
     }
     
     // === World Manipulation ===
     
+    // Particle name -> particle, or empty if there's no such simple particle
+    private static final Map<String, Optional<ParticleOptions>> PARTICLES = new ConcurrentHashMap<>();
+    // Sound id -> sound, or empty if there's no such sound
+    private static final Map<String, Optional<Holder<SoundEvent>>> SOUNDS = new ConcurrentHashMap<>();
+    
     /**
      * Spawns a particle at a position.
+     * Particles and sounds are buffered and sent at the end of the tick; see {@link EffectBuffer}.
      */
     @HostAccess.Export
     public void spawnParticle(Level world, Vec3 pos, String particleType) {
-        if (world.isClientSide()) return; // Only spawn on server
-        
-        if (!(world instanceof ServerLevel serverLevel)) return;
+        EffectBuffer buffer = EffectBuffer.of(world);
+        if (buffer == null) return; // Only spawn on server
         
         try {
             // Parse particle type
             ParticleOptions particle = getParticleType(particleType);
             if (particle != null) {
-                serverLevel.sendParticles(particle, pos.x, pos.y, pos.z, 1, 0, 0, 0, 0);
+                buffer.addParticle(particle, pos.x, pos.y, pos.z, 1);
             }
         } catch (Exception e) {
             NotEnoughRecipes.LOGGER.warn("Failed to spawn particle '{}': {}", particleType, e.getMessage());
@@ -230,28 +253,20 @@ public class NER {
     }
     
     /**
-     * Spawns a particle at a position (WorldWrapper overload).
-     */
-    @HostAccess.Export
-    public void spawnParticle(WorldWrapper world, Vec3 pos, String particleType) {
-        spawnParticle(world.getJavaObject(), pos, particleType);
-    }
-    
-    /**
-     * Spawns a particle at a position (BlockPosWrapper overload).
+     * Spawns a particle at a block position.
      */
     @HostAccess.Export
-    public void spawnParticle(Level world, BlockPosWrapper pos, String particleType) {
-        BlockPos blockPos = pos.getJavaObject();
-        spawnParticle(world, new Vec3(blockPos.getX(), blockPos.getY(), blockPos.getZ()), particleType);
+    public void spawnParticle(Level world, BlockPos pos, String particleType) {
+        spawnParticle(world, new Vec3(pos.getX(), pos.getY(), pos.getZ()), particleType);
     }
     
     /**
-     * Spawns a particle at a position (both wrappers overload).
+     * Gets a particle emitter for drawing shapes (rings, lines, spheres) in one call.
+     * Called from JavaScript: NER.particles(event.world).ring("flame", x, y, z, 2, 32)
      */
     @HostAccess.Export
-    public void spawnParticle(WorldWrapper world, BlockPosWrapper pos, String particleType) {
-        spawnParticle(world.getJavaObject(), pos, particleType);
+    public ParticleEmitter particles(Level world) {
+        return new ParticleEmitter(EffectBuffer.of(world));
     }
     
     /**
@@ -259,45 +274,31 @@ public class NER {
      */
     @HostAccess.Export
     public void playSound(Level world, Vec3 pos, String soundId, float volume, float pitch) {
-        if (world.isClientSide()) return; // Only play on server
+        EffectBuffer buffer = EffectBuffer.of(world);
+        if (buffer == null) return; // Only play on server
         
         try {
-            Identifier id = Identifier.tryParse(soundId);
-            if (id != null) {
-                var soundRef = BuiltInRegistries.SOUND_EVENT.getValue(id);
-                if (soundRef != null) {
-                    var soundHolder = BuiltInRegistries.SOUND_EVENT.wrapAsHolder(soundRef);
-                    world.playSound(null, pos.x, pos.y, pos.z, soundHolder, SoundSource.PLAYERS, volume, pitch);
-                }
+            Holder<SoundEvent> sound = SOUNDS.computeIfAbsent(soundId, NER::lookupSound).orElse(null);
+            if (sound != null) {
+                buffer.addSound(sound, pos.x, pos.y, pos.z, volume, pitch);
             }
         } catch (Exception e) {
             NotEnoughRecipes.LOGGER.warn("Failed to play sound '{}': {}", soundId, e.getMessage());
         }
     }
     
-    /**
-     * Plays a sound at a position (WorldWrapper overload).
-     */
-    @HostAccess.Export
-    public void playSound(WorldWrapper world, Vec3 pos, String soundId, float volume, float pitch) {
-        playSound(world.getJavaObject(), pos, soundId, volume, pitch);
-    }
-    
-    /**
-     * Plays a sound at a position (BlockPosWrapper overload).
-     */
-    @HostAccess.Export
-    public void playSound(Level world, BlockPosWrapper pos, String soundId, float volume, float pitch) {
-        BlockPos blockPos = pos.getJavaObject();
-        playSound(world, new Vec3(blockPos.getX(), blockPos.getY(), blockPos.getZ()), soundId, volume, pitch);
+    private static Optional<Holder<SoundEvent>> lookupSound(String soundId) {
+        Identifier id = Identifier.tryParse(soundId);
+        SoundEvent sound = id != null ? BuiltInRegistries.SOUND_EVENT.getValue(id) : null;
+        return sound != null ? Optional.of(BuiltInRegistries.SOUND_EVENT.wrapAsHolder(sound)) : Optional.empty();
     }
     
     /**
-     * Plays a sound at a position (both wrappers overload).
+     * Plays a sound at a block position.
      */
     @HostAccess.Export
-    public void playSound(WorldWrapper world, BlockPosWrapper pos, String soundId, float volume, float pitch) {
-        playSound(world.getJavaObject(), pos, soundId, volume, pitch);
+    public void playSound(Level world, BlockPos pos, String soundId, float volume, float pitch) {
+        playSound(world, new Vec3(pos.getX(), pos.getY(), pos.getZ()), soundId, volume, pitch);
     }
     
     // === Player Utilities ===
@@ -326,6 +327,7 @@ public class NER {
                         stack = new ItemStack(item, count);
                     }
                     player.addItem(stack);
+                    InventorySummary.invalidate(player);
                 } else {
                     NotEnoughRecipes.LOGGER.warn("Item not found: {}", itemId);
                 }
@@ -335,14 +337,6 @@ public class NER {
         }
     }
     
-    /**
-     * Gives an item to a player (wrapper overload).
-     */
-    @HostAccess.Export
-    public void giveItem(PlayerWrapper player, String itemId, int count) {
-        giveItem(player.getJavaObject(), itemId, count);
-    }
-    
     /**
      * Sends a message to a player.
      */
@@ -351,14 +345,6 @@ public class NER {
         player.displayClientMessage(Component.literal(message), false);
     }
     
-    /**
-     * Sends a message to a player (wrapper overload).
-     */
-    @HostAccess.Export
-    public void sendMessage(PlayerWrapper player, String message) {
-        sendMessage(player.getJavaObject(), message);
-    }
-    
     /**
      * Applies a potion effect to a player.
      */
@@ -380,14 +366,6 @@ public class NER {
         }
     }
     
-    /**
-     * Applies a potion effect to a player (wrapper overload).
-     */
-    @HostAccess.Export
-    public void applyEffect(PlayerWrapper player, String effectId, int duration, int amplifier) {
-        applyEffect(player.getJavaObject(), effectId, duration, amplifier);
-    }
-    
     // === Logging ===
     
     /**
@@ -408,28 +386,26 @@ public class NER {
     
     // === Helper Methods ===
     
-    private static ParticleOptions getParticleType(String name) {
-        // Handle common particle types
-        return switch (name.toLowerCase().replace("minecraft:", "")) {
-            case "flame" -> ParticleTypes.FLAME;
-            case "smoke" -> ParticleTypes.SMOKE;
-            case "heart" -> ParticleTypes.HEART;
-            case "enchant" -> ParticleTypes.ENCHANT;
-            case "portal" -> ParticleTypes.PORTAL;
-            case "explosion" -> ParticleTypes.EXPLOSION;
-            case "cloud" -> ParticleTypes.CLOUD;
-            case "bubble" -> ParticleTypes.BUBBLE;
-            case "splash" -> ParticleTypes.SPLASH;
-            case "crit" -> ParticleTypes.CRIT;
-            case "enchanted_hit" -> ParticleTypes.ENCHANTED_HIT;
-            case "happy_villager" -> ParticleTypes.HAPPY_VILLAGER;
-            case "angry_villager" -> ParticleTypes.ANGRY_VILLAGER;
-            case "end_rod" -> ParticleTypes.END_ROD;
-            case "dragon_breath" -> ParticleTypes.DRIPPING_WATER;
-            default -> {
-                NotEnoughRecipes.LOGGER.warn("Unknown particle type: {}", name);
-                yield ParticleTypes.FLAME;
-            }
-        };
+    /**
+     * Resolves a particle type by id, e.g. "flame" or "minecraft:end_rod".
+     * Any simple particle type in the registry is supported; types that need extra options
+     * (dust, block particles, ...) aren't. Results are memoized by the raw input, so repeated
+     * calls from tick handlers are a single map lookup.
+     * 
+     * @return the particle, or null if the id isn't a simple particle type
+     */
+    static ParticleOptions getParticleType(String name) {
+        return PARTICLES.computeIfAbsent(name, NER::lookupParticle).orElse(null);
+    }
+    
+    private static Optional<ParticleOptions> lookupParticle(String name) {
+        Identifier id = Identifier.tryParse(name.toLowerCase(Locale.ROOT));
+        if (id != null && BuiltInRegistries.PARTICLE_TYPE.getValue(id) instanceof SimpleParticleType particle) {
+            return Optional.of(particle);
+        }
+        
+        // Warned once per name, since the result is memoized
+        NotEnoughRecipes.LOGGER.warn("Unknown or unsupported particle type: {}", name);
+        return Optional.empty();
     }
 }
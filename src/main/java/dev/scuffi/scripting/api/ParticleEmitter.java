@@ -0,0 +1,98 @@
+package dev.scuffi.scripting.api;
+
+import net.minecraft.core.particles.ParticleOptions;
+import org.graalvm.polyglot.HostAccess;
+
+/**
+ * Bulk particle shapes for scripts, returned by {@code NER.particles(world)}.
+ * Each call computes the whole shape in Java, so drawing a ring of 64 particles crosses
+ * into Java once instead of 64 times. Particles go through the level's {@link EffectBuffer}.
+ * Shapes are limited to {@link #MAX_POINTS} points.
+ */
+public class ParticleEmitter {
+    
+    public static final int MAX_POINTS = 1024;
+    
+    private final EffectBuffer buffer; // Null for client-side levels, where nothing is emitted
+    
+    ParticleEmitter(EffectBuffer buffer) {
+        this.buffer = buffer;
+    }
+    
+    /**
+     * Emits particles at a single position.
+     */
+    @HostAccess.Export
+    public ParticleEmitter at(String particleType, double x, double y, double z, int count) {
+        ParticleOptions particle = resolve(particleType);
+        if (particle != null && count > 0) {
+            buffer.addParticle(particle, x, y, z, count);
+        }
+        return this;
+    }
+    
+    /**
+     * Emits a horizontal ring of evenly spaced particles around a center.
+     */
+    @HostAccess.Export
+    public ParticleEmitter ring(String particleType, double x, double y, double z, double radius, int points) {
+        ParticleOptions particle = resolve(particleType);
+        if (particle == null) {
+            return this;
+        }
+        points = Math.min(points, MAX_POINTS);
+        
+        double step = 2 * Math.PI / Math.max(1, points);
+        for (int i = 0; i < points; i++) {
+            double angle = i * step;
+            buffer.addParticle(particle, x + Math.cos(angle) * radius, y, z + Math.sin(angle) * radius, 1);
+        }
+        return this;
+    }
+    
+    /**
+     * Emits evenly spaced particles on a line, including both ends.
+     */
+    @HostAccess.Export
+    public ParticleEmitter line(String particleType, double x1, double y1, double z1, double x2, double y2, double z2, int points) {
+        ParticleOptions particle = resolve(particleType);
+        if (particle == null) {
+            return this;
+        }
+        points = Math.min(points, MAX_POINTS);
+        
+        for (int i = 0; i < points; i++) {
+            double t = points > 1 ? (double) i / (points - 1) : 0;
+            buffer.addParticle(particle, x1 + (x2 - x1) * t, y1 + (y2 - y1) * t, z1 + (z2 - z1) * t, 1);
+        }
+        return this;
+    }
+    
+    /**
+     * Emits particles spread evenly over the surface of a sphere, placed on a Fibonacci lattice.
+     */
+    @HostAccess.Export
+    public ParticleEmitter sphere(String particleType, double x, double y, double z, double radius, int points) {
+        ParticleOptions particle = resolve(particleType);
+        if (particle == null) {
+            return this;
+        }
+        points = Math.min(points, MAX_POINTS);
+        
+        double goldenAngle = Math.PI * (3 - Math.sqrt(5));
+        for (int i = 0; i < points; i++) {
+            double dy = points > 1 ? 1 - 2.0 * i / (points - 1) : 0;
+            double ringRadius = Math.sqrt(1 - dy * dy);
+            double angle = i * goldenAngle;
+            buffer.addParticle(particle,
+                    x + Math.cos(angle) * ringRadius * radius,
+                    y + dy * radius,
+                    z + Math.sin(angle) * ringRadius * radius, 1);
+        }
+        return this;
+    }
+    
+    private ParticleOptions resolve(String particleType) {
+        return buffer != null ? NER.getParticleType(particleType) : null;
+    }
+}
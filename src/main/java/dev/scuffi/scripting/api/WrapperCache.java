@@ -0,0 +1,54 @@
+package dev.scuffi.scripting.api;
+
+import com.google.common.collect.MapMaker;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hands out one wrapper per live player and level.
+ * 
+ * Scripts see the same host object every time they get a given player or world, so they
+ * can use wrappers as map keys and GraalJS can keep its property caches monomorphic. Keys
+ * are compared by identity, and entries are dropped when a player disconnects or respawns
+ * or a level unloads.
+ * 
+ * Values are weak as well as keys: a wrapper holds its player or level, so a weak key alone
+ * would be kept alive by its own value. A wrapper no script still holds can be collected,
+ * and the next lookup makes a new one.
+ */
+public final class WrapperCache {
+    
+    private static final ConcurrentMap<Player, PlayerWrapper> PLAYERS = new MapMaker().weakKeys().weakValues().makeMap();
+    private static final ConcurrentMap<Level, WorldWrapper> WORLDS = new MapMaker().weakKeys().weakValues().makeMap();
+    
+    private WrapperCache() {}
+    
+    /**
+     * Gets the wrapper for a player, or null if the player is null.
+     */
+    public static PlayerWrapper player(Player player) {
+        return player != null ? PLAYERS.computeIfAbsent(player, PlayerWrapper::new) : null;
+    }
+    
+    /**
+     * Gets the wrapper for a level, or null if the level is null.
+     */
+    public static WorldWrapper world(Level world) {
+        return world != null ? WORLDS.computeIfAbsent(world, WorldWrapper::new) : null;
+    }
+    
+    public static void invalidate(Player player) {
+        PLAYERS.remove(player);
+    }
+    
+    public static void invalidate(Level world) {
+        WORLDS.remove(world);
+    }
+    
+    public static void clear() {
+        PLAYERS.clear();
+        WORLDS.clear();
+    }
+}
@@ -0,0 +1,80 @@
+package dev.scuffi.scripting.events;
+
+import dev.scuffi.NotEnoughRecipes;
+import dev.scuffi.scripting.api.NER;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import org.graalvm.polyglot.HostAccess;
+
+import java.util.Queue;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Command buffer handed to async event handlers as their second argument.
+ * Async handlers run off the server thread and can't touch the world, so every method here
+ * only queues the action; the queue is applied on the server thread at the end of the tick.
+ * Players are addressed by UUID, as found in the event snapshot.
+ */
+public class AsyncCommands {
+    
+    private static final NER NER_API = new NER();
+    
+    private final Queue<Consumer<MinecraftServer>> queue;
+    
+    AsyncCommands(Queue<Consumer<MinecraftServer>> queue) {
+        this.queue = queue;
+    }
+    
+    /**
+     * Sends a chat message to a player.
+     */
+    @HostAccess.Export
+    public void sendMessage(String playerUuid, String message) {
+        withPlayer(playerUuid, (server, player) -> NER_API.sendMessage(player, message));
+    }
+    
+    /**
+     * Gives an item to a player.
+     */
+    @HostAccess.Export
+    public void giveItem(String playerUuid, String itemId, int count) {
+        withPlayer(playerUuid, (server, player) -> NER_API.giveItem(player, itemId, count));
+    }
+    
+    /**
+     * Applies a status effect to a player.
+     */
+    @HostAccess.Export
+    public void applyEffect(String playerUuid, String effectId, int duration, int amplifier) {
+        withPlayer(playerUuid, (server, player) -> NER_API.applyEffect(player, effectId, duration, amplifier));
+    }
+    
+    /**
+     * Logs a message to the server console.
+     * Logging is thread-safe, so this isn't deferred.
+     */
+    @HostAccess.Export
+    public void log(String message) {
+        NER_API.log(message);
+    }
+    
+    private void withPlayer(String playerUuid, BiConsumer<MinecraftServer, ServerPlayer> action) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(playerUuid);
+        } catch (IllegalArgumentException e) {
+            NotEnoughRecipes.LOGGER.warn("Async handler used an invalid player UUID: {}", playerUuid);
+            return;
+        }
+        
+        queue.add(server -> {
+            // The player may have left since the event fired
+            ServerPlayer player = server.getPlayerList().getPlayer(uuid);
+            if (player != null) {
+                action.accept(server, player);
+            }
+        });
+    }
+}
@@ -0,0 +1,238 @@
+package dev.scuffi.scripting.events;
+
+import dev.scuffi.NotEnoughRecipes;
+import net.minecraft.server.MinecraftServer;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs {@code Event.onAsync} handlers on a pool of worker threads.
+ * 
+ * GraalJS contexts are single-threaded, so each worker evaluates the handlers it runs in its
+ * own contexts (one per script) on the shared engine. Handlers are compiled from their
+ * function source, which means they can't see the script's top-level variables: they get an
+ * immutable snapshot of the event and an {@link AsyncCommands} buffer, and anything that
+ * touches the world is queued and applied on the server thread at the end of the tick.
+ * 
+ * Submitting never blocks. If the workers fall behind and the queue is full, events are dropped.
+ */
+final class AsyncEventDispatcher {
+    
+    private static final int QUEUE_CAPACITY = 1024;
+    // Commands applied per tick, so a flood of async results can't stall the server either
+    private static final int MAX_COMMANDS_PER_TICK = 512;
+    
+    private record Task(EventHandler handler, ProxyObject snapshot) {}
+    
+    private final BlockingQueue<Task> tasks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Queue<Consumer<MinecraftServer>> commands = new ConcurrentLinkedQueue<>();
+    private final AsyncCommands commandBuffer = new AsyncCommands(commands);
+    
+    // Script name -> generation, bumped when the script is unloaded so workers drop their contexts
+    private final Map<String, Long> scriptGenerations = new ConcurrentHashMap<>();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    
+    private volatile Engine engine;
+    private volatile int workerCount = 2;
+    private final List<Thread> workers = new ArrayList<>();
+    
+    /**
+     * Sets the engine worker contexts are created on and the pool size used the next time the pool starts.
+     */
+    void configure(Engine engine, int workerCount) {
+        this.engine = engine;
+        this.workerCount = Math.max(1, workerCount);
+    }
+    
+    synchronized void start() {
+        if (!workers.isEmpty() || engine == null) {
+            return;
+        }
+        
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(new Worker(), "NER-AsyncEvents-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        NotEnoughRecipes.LOGGER.info("Started {} async event worker(s)", workerCount);
+    }
+    
+    /**
+     * Stops the workers and discards queued events and commands.
+     */
+    synchronized void stop() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        workers.clear();
+        tasks.clear();
+        commands.clear();
+        scriptGenerations.clear();
+    }
+    
+    /**
+     * Queues an async handler call. Returns immediately; the event is dropped if the queue is full.
+     */
+    void submit(EventHandler handler, ProxyObject snapshot) {
+        if (!tasks.offer(new Task(handler, snapshot))) {
+            long dropped = droppedEvents.incrementAndGet();
+            // Warn on the first drop and then every 1000th so a backlog doesn't flood the log
+            if (dropped % 1000 == 1) {
+                NotEnoughRecipes.LOGGER.warn("Async event queue is full, dropped {} event(s) so far", dropped);
+            }
+        }
+    }
+    
+    /**
+     * Marks a script's worker contexts as stale. Workers close them the next time they're used.
+     */
+    void unloadScript(String scriptName) {
+        scriptGenerations.merge(scriptName, 1L, Long::sum);
+    }
+    
+    /**
+     * Applies commands queued by async handlers. Called on the server thread at the end of every tick.
+     */
+    void applyCommands(MinecraftServer server) {
+        for (int i = 0; i < MAX_COMMANDS_PER_TICK; i++) {
+            Consumer<MinecraftServer> command = commands.poll();
+            if (command == null) {
+                return;
+            }
+            
+            try {
+                command.accept(server);
+            } catch (Exception e) {
+                NotEnoughRecipes.LOGGER.error("Error applying command from async event handler: {}", e.getMessage());
+            }
+        }
+    }
+    
+    long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+    
+    /**
+     * A worker thread with its own per-script contexts.
+     */
+    private final class Worker implements Runnable {
+        
+        private final Map<String, WorkerScript> scripts = new HashMap<>();
+        
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Task task = tasks.poll(1, TimeUnit.SECONDS);
+                    if (task != null) {
+                        run(task);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            } finally {
+                for (WorkerScript script : scripts.values()) {
+                    script.close();
+                }
+                scripts.clear();
+            }
+        }
+        
+        private void run(Task task) {
+            EventHandler handler = task.handler();
+            if (handler.isDisabled()) {
+                return;
+            }
+            
+            WorkerScript script = getScript(handler.getScriptName());
+            try {
+                Value function = script.function(handler);
+                function.execute(task.snapshot(), commandBuffer);
+            } catch (PolyglotException e) {
+                NotEnoughRecipes.LOGGER.error("Error in async JavaScript handler for '{}' from script '{}': {}",
+                        handler.getEventName(), handler.getScriptName(), e.getMessage());
+            } catch (Exception e) {
+                NotEnoughRecipes.LOGGER.error("Unexpected error in async handler for '{}': {}",
+                        handler.getEventName(), e.getMessage());
+            }
+        }
+        
+        private WorkerScript getScript(String scriptName) {
+            long generation = scriptGenerations.getOrDefault(scriptName, 0L);
+            WorkerScript script = scripts.get(scriptName);
+            if (script != null && script.generation != generation) {
+                script.close();
+                script = null;
+            }
+            if (script == null) {
+                script = new WorkerScript(scriptName, generation);
+                scripts.put(scriptName, script);
+            }
+            return script;
+        }
+    }
+    
+    /**
+     * A script's context on one worker, with its compiled async handlers.
+     */
+    private final class WorkerScript {
+        
+        private final String scriptName;
+        private final long generation;
+        private final Context context;
+        private final Map<EventHandler, Value> functions = new IdentityHashMap<>();
+        
+        WorkerScript(String scriptName, long generation) {
+            this.scriptName = scriptName;
+            this.generation = generation;
+            this.context = Context.newBuilder("js")
+                    .engine(engine)
+                    .allowHostAccess(HostAccess.EXPLICIT) // Only the command buffer is callable
+                    .allowIO(false)
+                    .allowCreateThread(false)
+                    .allowNativeAccess(false)
+                    .build();
+        }
+        
+        Value function(EventHandler handler) {
+            Value function = functions.get(handler);
+            if (function == null) {
+                // Parenthesized so function declarations evaluate to the function
+                Source source = Source.newBuilder("js", "(" + handler.getAsyncSource() + ")", scriptName + " (async)")
+                        .cached(true)
+                        .buildLiteral();
+                function = context.eval(source);
+                functions.put(handler, function);
+            }
+            return function;
+        }
+        
+        void close() {
+            try {
+                context.close();
+            } catch (Exception e) {
+                NotEnoughRecipes.LOGGER.warn("Error closing async context for script '{}': {}", scriptName, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package dev.scuffi.scripting.events;
+
+import java.util.function.Supplier;
+
+/**
+ * Reuses one context instance across fires of a high-frequency event, so firing doesn't allocate
+ * a new context and its wrappers each time. Only used on the server thread.
+ * 
+ * A fire that starts while the pooled instance is still in use (an event fired from inside a
+ * handler of the same event) gets a fresh instance. Handlers get the context through a view
+ * stamped with the fire it belongs to (see {@link EventContext#scriptView()}), so a script that
+ * keeps it and uses it outside a fire gets an error. That context is then replaced by a new one.
+ */
+final class ContextPool<T extends EventContext> {
+    
+    private final Supplier<T> factory;
+    
+    private T free;
+    
+    ContextPool(Supplier<T> factory) {
+        this.factory = factory;
+    }
+    
+    /**
+     * Takes the pooled context, or a new one if it's in use or escaped.
+     * The caller must reset it before firing and pass it to {@link #release} afterwards.
+     */
+    T acquire() {
+        T context = free;
+        free = null;
+        // A script kept the previous one; it stays with the script and a new one takes its place
+        if (context == null || context.hasEscaped()) {
+            context = factory.get();
+        }
+        
+        context.activate();
+        return context;
+    }
+    
+    /**
+     * Returns a context once every handler for the fire has run.
+     */
+    void release(T context) {
+        context.release();
+        if (free == null) {
+            free = context;
+        }
+    }
+}
@@ -1,27 +1,68 @@
 package dev.scuffi.scripting.events;
 
 import dev.scuffi.NotEnoughRecipes;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.level.block.Block;
+import org.graalvm.polyglot.Engine;
 import org.graalvm.polyglot.Value;
 import org.graalvm.polyglot.PolyglotException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Bridges JavaScript event registrations to Fabric events.
  * Provides the JavaScript-facing Event class and manages callback execution.
+ * 
+ * Each event name maps to an {@link EventChannel} holding an immutable handler array.
+ * Fabric callbacks resolve their channel once and fire through it, so dispatch is a plain
+ * array loop with no map lookup or list copy.
+ * 
+ * Every handler call is timed. A call is interrupted once it runs longer than the configured
+ * execution limit or uses up the rest of its script's per-tick budget; handlers that keep
+ * doing so are disabled until their script is reloaded. Running out of budget counts against
+ * the script's handler that used the most of it that tick, not the one that was interrupted.
+ * 
+ * Handlers registered with {@code Event.onAsync} aren't called on the server thread: they
+ * get a snapshot of the event and run on the {@link AsyncEventDispatcher} worker pool.
  */
 public class EventBridge {
     
     private static final EventBridge INSTANCE = new EventBridge();
     
-    // Map of event name -> list of JavaScript callback functions
-    private final Map<String, List<Value>> eventHandlers = new HashMap<>();
+    // Map of event name -> channel. Channels are never removed, so lookups can be cached
+    private final Map<String, EventChannel> channelsByName = new ConcurrentHashMap<>();
     
-    // Track which script registered which handlers for cleanup
-    private final Map<String, List<String>> scriptEventMap = new HashMap<>();
+    // Channel id -> channel, copy-on-write
+    private volatile EventChannel[] channels = new EventChannel[0];
+    
+    // Track which events each script registered handlers for, so cleanup only touches those channels
+    private final Map<String, Set<EventChannel>> scriptEventMap = new HashMap<>();
+    
+    // Script name -> execution time of its handlers
+    private final Map<String, ScriptProfile> scriptProfiles = new ConcurrentHashMap<>();
+    // Handlers removed for exceeding their time limit, kept so they show up in the profile
+    private final List<EventHandler> disabledHandlers = new ArrayList<>();
+    
+    private final HandlerWatchdog watchdog = new HandlerWatchdog();
+    private final AsyncEventDispatcher asyncDispatcher = new AsyncEventDispatcher();
+    
+    // Limits in nanoseconds, Long.MAX_VALUE when unlimited
+    private volatile long maxExecutionNanos = Long.MAX_VALUE;
+    private volatile long tickBudgetNanos = Long.MAX_VALUE;
+    private volatile int maxViolations = 0;
+    
+    // Server tick counter used to reset per-tick budgets
+    private long tick = 0;
     
     private EventBridge() {}
     
@@ -30,7 +71,78 @@ public class EventBridge {
     }
     
     /**
-     * Registers a JavaScript callback for an event.
+     * Gets the channel for an event name, creating it if needed.
+     * Callers that fire the same event repeatedly should resolve the channel once and keep it.
+     */
+    public EventChannel channel(String eventName) {
+        EventChannel channel = channelsByName.get(eventName);
+        if (channel != null) {
+            return channel;
+        }
+        
+        synchronized (this) {
+            channel = channelsByName.get(eventName);
+            if (channel == null) {
+                EventChannel[] current = channels;
+                channel = new EventChannel(current.length, eventName);
+                EventChannel[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = channel;
+                channels = updated;
+                channelsByName.put(eventName, channel);
+            }
+            return channel;
+        }
+    }
+    
+    /**
+     * Gets the channel with a precomputed id, or null if no such channel exists.
+     */
+    public EventChannel channel(int eventId) {
+        EventChannel[] current = channels;
+        return eventId >= 0 && eventId < current.length ? current[eventId] : null;
+    }
+    
+    /**
+     * Sets the execution limits for JavaScript handlers.
+     * 
+     * @param maxExecutionTimeMs Longest a single handler call may run before it's interrupted, 0 for no limit
+     * @param tickBudgetMs Total time a script's handlers may use per server tick, 0 for no limit
+     * @param maxViolations Number of times a handler may exceed a limit before it's disabled, 0 to never disable
+     */
+    public void setExecutionLimits(long maxExecutionTimeMs, long tickBudgetMs, int maxViolations) {
+        this.maxExecutionNanos = maxExecutionTimeMs > 0 ? TimeUnit.MILLISECONDS.toNanos(maxExecutionTimeMs) : Long.MAX_VALUE;
+        this.tickBudgetNanos = tickBudgetMs > 0 ? TimeUnit.MILLISECONDS.toNanos(tickBudgetMs) : Long.MAX_VALUE;
+        this.maxViolations = Math.max(0, maxViolations);
+    }
+    
+    /**
+     * Sets up the worker pool for async handlers.
+     * 
+     * @param engine The shared engine worker contexts are created on
+     * @param workers Number of worker threads, started when the first async handler registers
+     */
+    public void configureAsync(Engine engine, int workers) {
+        asyncDispatcher.configure(engine, workers);
+    }
+    
+    /**
+     * Applies world changes queued by async handlers.
+     * Called on the server thread at the end of every tick.
+     */
+    public void applyAsyncCommands(MinecraftServer server) {
+        asyncDispatcher.applyCommands(server);
+    }
+    
+    /**
+     * Starts a new server tick, giving every script a fresh tick budget.
+     * Called on the server thread at the start of every tick.
+     */
+    public void onTickStart() {
+        tick++;
+    }
+    
+    /**
+     * Registers a JavaScript callback for an event that runs every time the event fires.
      * Called from JavaScript: Event.on("event_name", callback)
      * 
      * @param eventName The name of the event (e.g., "item_use", "player_tick")
@@ -38,18 +150,91 @@ public class EventBridge {
      * @param scriptName The name of the script registering this handler (for tracking)
      */
     public void registerEventHandler(String eventName, Value callback, String scriptName) {
+        registerEventHandler(eventName, callback, scriptName, EventHandler.Schedule.EVERY_TICK);
+    }
+    
+    /**
+     * Registers a JavaScript callback for an event.
+     * Called from JavaScript: Event.on("event_name", callback, { interval: 20, staggered: true })
+     * 
+     * @param eventName The name of the event (e.g., "item_use", "player_tick")
+     * @param callback The JavaScript function to call when the event fires
+     * @param scriptName The name of the script registering this handler (for tracking)
+     * @param schedule How often the handler runs
+     */
+    public void registerEventHandler(String eventName, Value callback, String scriptName, EventHandler.Schedule schedule) {
+        registerEventHandler(eventName, callback, scriptName, schedule, null);
+    }
+    
+    /**
+     * Registers a JavaScript callback that's only called for events matching a filter.
+     * Called from JavaScript: Event.on("item_use", { item: "ruby_wand" }, callback)
+     * 
+     * @param eventName The name of the event (e.g., "item_use", "player_tick")
+     * @param callback The JavaScript function to call when the event fires
+     * @param scriptName The name of the script registering this handler (for tracking)
+     * @param schedule How often the handler runs
+     * @param filter The filter events must match, or null for every event
+     */
+    public void registerEventHandler(String eventName, Value callback, String scriptName,
+                                     EventHandler.Schedule schedule, EventFilter filter) {
         if (!callback.canExecute()) {
-            NotEnoughRecipes.LOGGER.warn("Script '{}' tried to register non-executable callback for event '{}'", 
+            NotEnoughRecipes.LOGGER.warn("Script '{}' tried to register non-executable callback for event '{}'",
                     scriptName, eventName);
             return;
         }
         
-        eventHandlers.computeIfAbsent(eventName, k -> new ArrayList<>()).add(callback);
-        scriptEventMap.computeIfAbsent(scriptName, k -> new ArrayList<>()).add(eventName);
+        EventChannel channel = channel(eventName);
+        ScriptProfile profile = scriptProfiles.computeIfAbsent(scriptName, ScriptProfile::new);
+        synchronized (this) {
+            channel.add(new EventHandler(eventName, scriptName, callback, profile, schedule, filter, null));
+            scriptEventMap.computeIfAbsent(scriptName, k -> new HashSet<>()).add(channel);
+        }
+        watchdog.start();
         
         NotEnoughRecipes.LOGGER.debug("Registered handler for event '{}' from script '{}'", eventName, scriptName);
     }
     
+    /**
+     * Registers a JavaScript callback that runs off the server thread.
+     * Called from JavaScript: Event.onAsync("player_join", callback)
+     * 
+     * The callback is recompiled from its source in a worker context, so it can't use the
+     * script's top-level variables. It's called with an immutable snapshot of the event and an
+     * {@link AsyncCommands} buffer. Cancellable events don't accept async handlers, since
+     * they can't affect the outcome.
+     * 
+     * @param eventName The name of the event (e.g., "player_join", "entity_death")
+     * @param callback The JavaScript function to run for each event
+     * @param scriptName The name of the script registering this handler (for tracking)
+     * @param filter The filter events must match, or null for every event
+     */
+    public void registerAsyncHandler(String eventName, Value callback, String scriptName, EventFilter filter) {
+        if (!callback.canExecute() || callback.getSourceLocation() == null) {
+            NotEnoughRecipes.LOGGER.warn("Script '{}' tried to register a non-JavaScript async callback for event '{}'",
+                    scriptName, eventName);
+            return;
+        }
+        
+        EventChannel channel = channel(eventName);
+        if (channel.isCancellable()) {
+            NotEnoughRecipes.LOGGER.warn("Script '{}' tried to register an async handler for cancellable event '{}'; use Event.on instead",
+                    scriptName, eventName);
+            return;
+        }
+        
+        String source = callback.getSourceLocation().getCharacters().toString();
+        ScriptProfile profile = scriptProfiles.computeIfAbsent(scriptName, ScriptProfile::new);
+        synchronized (this) {
+            channel.add(new EventHandler(eventName, scriptName, callback, profile,
+                    EventHandler.Schedule.EVERY_TICK, filter, source));
+            scriptEventMap.computeIfAbsent(scriptName, k -> new HashSet<>()).add(channel);
+        }
+        asyncDispatcher.start();
+        
+        NotEnoughRecipes.LOGGER.debug("Registered async handler for event '{}' from script '{}'", eventName, scriptName);
+    }
+    
     /**
      * Fires all registered JavaScript handlers for an event.
      * 
@@ -57,56 +242,215 @@ public class EventBridge {
      * @param eventContext The event context object to pass to JavaScript
      */
     public void fireEvent(String eventName, EventContext eventContext) {
-        List<Value> handlers = eventHandlers.get(eventName);
-        if (handlers == null || handlers.isEmpty()) {
+        EventChannel channel = channelsByName.get(eventName);
+        if (channel != null) {
+            fireEvent(channel, eventContext);
+        }
+    }
+    
+    /**
+     * Fires all registered JavaScript handlers for an event channel.
+     * Handlers registered or removed while firing take effect from the next fire.
+     * 
+     * Handlers filtered on an item or block are looked up by the event's item or block,
+     * so only the ones bound to it are considered. Remaining filter checks run in Java, and
+     * handlers whose filter doesn't match are never called.
+     * 
+     * @param channel The channel of the event to fire
+     * @param eventContext The event context object to pass to JavaScript
+     */
+    public void fireEvent(EventChannel channel, EventContext eventContext) {
+        EventChannel.Handlers index = channel.getIndex();
+        
+        dispatch(channel, index.unkeyed, eventContext);
+        
+        if (index.hasItemKeys()) {
+            Item item = eventContext.getFilterItem();
+            if (item != null) {
+                dispatch(channel, index.byItem.get(item), eventContext);
+                if (!index.pendingItems.isEmpty()) {
+                    dispatchPending(channel, index.pendingItems.get(BuiltInRegistries.ITEM.getKey(item)), eventContext);
+                }
+            }
+        }
+        if (index.hasBlockKeys()) {
+            Block block = eventContext.getFilterBlock();
+            if (block != null) {
+                dispatch(channel, index.byBlock.get(block), eventContext);
+                if (!index.pendingBlocks.isEmpty()) {
+                    dispatchPending(channel, index.pendingBlocks.get(BuiltInRegistries.BLOCK.getKey(block)), eventContext);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Dispatches to handlers whose filter id wasn't registered when the index was built.
+     * The id clearly exists now, so the index is rebuilt and later fires take the direct lookup.
+     */
+    private void dispatchPending(EventChannel channel, EventHandler[] handlers, EventContext eventContext) {
+        if (handlers != null) {
+            channel.reindex();
+            dispatch(channel, handlers, eventContext);
+        }
+    }
+    
+    private void dispatch(EventChannel channel, EventHandler[] handlers, EventContext eventContext) {
+        if (handlers == null) {
+            return;
+        }
+        
+        for (int i = 0; i < handlers.length; i++) {
+            EventHandler handler = handlers[i];
+            EventFilter filter = handler.getFilter();
+            if (filter != null && !filter.matches(eventContext)) {
+                continue;
+            }
+            
+            if (handler.isAsync()) {
+                if (!handler.isDisabled()) {
+                    asyncDispatcher.submit(handler, eventContext.snapshot(channel.getName()));
+                }
+                continue;
+            }
+            
+            int interval = handler.getSchedule().interval();
+            
+            if (interval == 1) {
+                invokeHandler(channel, handler, eventContext.scriptView());
+                continue;
+            }
+            
+            int slot = (int) (tick % interval);
+            if (!handler.getSchedule().staggered()) {
+                if (slot == 0) {
+                    invokeHandler(channel, handler, eventContext.scriptView());
+                }
+            } else {
+                try {
+                    if (eventContext.selectStaggerSlot(interval, slot)) {
+                        invokeHandler(channel, handler, eventContext.scriptView());
+                    }
+                } finally {
+                    // Undo the narrowing even when the slot was empty, so later handlers see everything
+                    eventContext.selectStaggerSlot(1, 0);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Calls a single handler under the execution limits and records how long it took.
+     */
+    private void invokeHandler(EventChannel channel, EventHandler handler, Object argument) {
+        if (handler.isDisabled()) {
             return;
         }
         
-        // Create a copy to avoid concurrent modification if a handler modifies the list
-        List<Value> handlersCopy = new ArrayList<>(handlers);
+        ScriptProfile profile = handler.getProfile();
+        long remaining = profile.remainingBudget(tick, tickBudgetNanos);
+        if (remaining <= 0) {
+            // The script used up its budget earlier this tick
+            profile.recordSkipped();
+            return;
+        }
+        
+        long limit = Math.min(maxExecutionNanos, remaining);
+        long start = System.nanoTime();
+        boolean watched = limit != Long.MAX_VALUE && watchdog.begin(handler.getCallback(), start + limit);
+        boolean interrupted = false;
+        
+        try {
+            handler.getCallback().execute(argument);
+        } catch (PolyglotException e) {
+            if (e.isInterrupted()) {
+                interrupted = true;
+            } else {
+                NotEnoughRecipes.LOGGER.error("Error in JavaScript event handler for '{}' from script '{}': {}",
+                        channel.getName(), handler.getScriptName(), formatScriptError(e));
+            }
+        } catch (Exception e) {
+            NotEnoughRecipes.LOGGER.error("Unexpected error in event handler for '{}': {}",
+                    channel.getName(), e.getMessage());
+        } finally {
+            if (watched) {
+                watchdog.end();
+            }
+        }
+        
+        long elapsed = System.nanoTime() - start;
+        handler.record(tick, elapsed);
+        profile.record(tick, elapsed, handler);
         
-        for (Value handler : handlersCopy) {
-            try {
-                handler.execute(eventContext);
-            } catch (PolyglotException e) {
-                NotEnoughRecipes.LOGGER.error("Error in JavaScript event handler for '{}': {}", 
-                        eventName, formatScriptError(e));
-            } catch (Exception e) {
-                NotEnoughRecipes.LOGGER.error("Unexpected error in event handler for '{}': {}", 
-                        eventName, e.getMessage());
+        if (interrupted || elapsed > limit) {
+            if (limit == maxExecutionNanos || elapsed > maxExecutionNanos) {
+                // The call itself ran past the execution limit
+                onLimitExceeded(channel, handler, String.format("ran for %d ms and %s",
+                        TimeUnit.NANOSECONDS.toMillis(elapsed), interrupted ? "was interrupted" : "exceeded its time limit"));
+            } else {
+                // The script ran out of tick budget; charge the handler that used the most of it, not
+                // whichever one happened to be running at the time
+                EventHandler heaviest = profile.getHeaviestHandler();
+                onLimitExceeded(channel(heaviest.getEventName()), heaviest,
+                        String.format("used %d ms, the most of its script's tick budget",
+                                TimeUnit.NANOSECONDS.toMillis(heaviest.getTickNanos(tick))));
             }
         }
     }
     
+    private void onLimitExceeded(EventChannel channel, EventHandler handler, String reason) {
+        int violations = handler.recordViolation();
+        NotEnoughRecipes.LOGGER.warn("Handler for '{}' from script '{}' {} ({} violation(s))",
+                channel.getName(), handler.getScriptName(), reason, violations);
+        
+        if (maxViolations > 0 && violations >= maxViolations && !handler.isDisabled()) {
+            synchronized (this) {
+                handler.disable();
+                channel.removeIf(h -> h == handler);
+                disabledHandlers.add(handler);
+            }
+            NotEnoughRecipes.LOGGER.error("Disabled handler for '{}' from script '{}' after {} time limit violations; fix the script and reload it",
+                    channel.getName(), handler.getScriptName(), violations);
+        }
+    }
+    
     /**
      * Clears all event handlers registered by a specific script.
      * Used during hot-reload to clean up old handlers.
      * 
      * @param scriptName The name of the script whose handlers should be removed
      */
-    public void clearScriptHandlers(String scriptName) {
-        List<String> events = scriptEventMap.get(scriptName);
-        if (events != null) {
-            for (String eventName : events) {
-                List<Value> handlers = eventHandlers.get(eventName);
-                if (handlers != null) {
-                    // Remove handlers from this script
-                    // Note: We can't easily identify which handlers belong to which script
-                    // without more tracking, so for now we'll clear all on reload
-                    handlers.clear();
-                }
-            }
-            scriptEventMap.remove(scriptName);
+    public synchronized void clearScriptHandlers(String scriptName) {
+        // A reloaded script starts with a clean profile
+        scriptProfiles.remove(scriptName);
+        disabledHandlers.removeIf(handler -> handler.getScriptName().equals(scriptName));
+        asyncDispatcher.unloadScript(scriptName);
+        
+        Set<EventChannel> channelsForScript = scriptEventMap.remove(scriptName);
+        if (channelsForScript == null) {
+            return;
+        }
+        
+        for (EventChannel channel : channelsForScript) {
+            // Only remove this script's callbacks; other scripts keep theirs
+            channel.removeIf(handler -> handler.getScriptName().equals(scriptName));
         }
+        NotEnoughRecipes.LOGGER.debug("Cleared event handlers for script '{}'", scriptName);
     }
     
     /**
      * Clears all registered event handlers.
      * Used during full reload.
      */
-    public void clearAllHandlers() {
-        eventHandlers.clear();
+    public synchronized void clearAllHandlers() {
+        for (EventChannel channel : channels) {
+            channel.clear();
+        }
         scriptEventMap.clear();
+        scriptProfiles.clear();
+        disabledHandlers.clear();
+        watchdog.stop();
+        asyncDispatcher.stop();
         NotEnoughRecipes.LOGGER.info("Cleared all JavaScript event handlers");
     }
     
@@ -114,15 +458,40 @@ public class EventBridge {
      * Gets the number of handlers registered for an event.
      */
     public int getHandlerCount(String eventName) {
-        List<Value> handlers = eventHandlers.get(eventName);
-        return handlers != null ? handlers.size() : 0;
+        EventChannel channel = channelsByName.get(eventName);
+        return channel != null ? channel.getHandlerCount() : 0;
     }
     
     /**
-     * Gets all registered event names.
+     * Gets all event names that have at least one handler registered.
      */
     public List<String> getRegisteredEvents() {
-        return new ArrayList<>(eventHandlers.keySet());
+        List<String> events = new ArrayList<>();
+        for (EventChannel channel : channels) {
+            if (channel.hasHandlers()) {
+                events.add(channel.getName());
+            }
+        }
+        return events;
+    }
+    
+    /**
+     * Gets the execution profile of every script with registered handlers.
+     */
+    public List<ScriptProfile> getScriptProfiles() {
+        return new ArrayList<>(scriptProfiles.values());
+    }
+    
+    /**
+     * Gets every registered handler, including ones disabled for exceeding their time limit.
+     */
+    public synchronized List<EventHandler> getAllHandlers() {
+        List<EventHandler> all = new ArrayList<>();
+        for (EventChannel channel : channels) {
+            all.addAll(Arrays.asList(channel.getHandlers()));
+        }
+        all.addAll(disabledHandlers);
+        return all;
     }
     
     /**
@@ -0,0 +1,263 @@
+package dev.scuffi.scripting.events;
+
+import dev.scuffi.NotEnoughRecipes;
+
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.Identifier;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.level.block.Block;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * The handlers registered for one event name.
+ * 
+ * Handlers are kept in an immutable array that is replaced on every register/unregister,
+ * so dispatch just reads the current snapshot and loops over it without locking or copying.
+ * Channels are created once per event name and never removed, which lets callers resolve
+ * them up front and skip the name lookup on every fire.
+ * 
+ * Handlers whose filter names an item or block are indexed by that item or block, so an
+ * event only reaches the handlers bound to the item or block involved instead of every
+ * filtered handler. Ids that aren't registered yet (e.g. dynamic items created after the
+ * script loaded) are kept by id until they resolve.
+ * 
+ * A channel is armed while it has at least one handler. Fabric listeners can't be
+ * unregistered, so the listener bound to a channel is only installed the first time the
+ * channel is armed, and from then on checks {@link #isArmed()} before doing any work.
+ */
+public final class EventChannel {
+    
+    static final EventHandler[] NO_HANDLERS = new EventHandler[0];
+    
+    private final int id;
+    private final String name;
+    
+    // Copy-on-write snapshot; writes are synchronized on the channel
+    private volatile Handlers handlers = Handlers.EMPTY;
+    private volatile boolean armed = false;
+    private volatile boolean cancellable = false;
+    
+    private Runnable listenerInstaller;
+    private boolean listenerInstalled = false;
+    
+    EventChannel(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+    
+    /**
+     * Gets the precomputed id of this event.
+     */
+    public int getId() {
+        return id;
+    }
+    
+    /**
+     * Gets the event name scripts use to register for this event.
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * An immutable view of a channel's handlers, split by how they're dispatched.
+     */
+    static final class Handlers {
+        static final Handlers EMPTY = new Handlers(NO_HANDLERS);
+        
+        // Every handler, in registration order
+        final EventHandler[] all;
+        // Handlers without an item or block in their filter; checked against every event
+        final EventHandler[] unkeyed;
+        // Item -> handlers filtered on that item
+        final Map<Item, EventHandler[]> byItem;
+        // Block -> handlers filtered on that block (and no item)
+        final Map<Block, EventHandler[]> byBlock;
+        // Filter ids that weren't registered when this snapshot was built
+        final Map<Identifier, EventHandler[]> pendingItems;
+        final Map<Identifier, EventHandler[]> pendingBlocks;
+        
+        Handlers(EventHandler[] all) {
+            this.all = all;
+            
+            List<EventHandler> unkeyedList = new ArrayList<>();
+            Map<Identifier, List<EventHandler>> itemLists = new HashMap<>();
+            Map<Identifier, List<EventHandler>> blockLists = new HashMap<>();
+            for (EventHandler handler : all) {
+                EventFilter filter = handler.getFilter();
+                if (filter != null && filter.getItem() != null) {
+                    itemLists.computeIfAbsent(filter.getItem(), k -> new ArrayList<>()).add(handler);
+                } else if (filter != null && filter.getBlock() != null) {
+                    blockLists.computeIfAbsent(filter.getBlock(), k -> new ArrayList<>()).add(handler);
+                } else {
+                    unkeyedList.add(handler);
+                }
+            }
+            
+            this.unkeyed = unkeyedList.toArray(NO_HANDLERS);
+            
+            this.byItem = new IdentityHashMap<>();
+            this.pendingItems = new HashMap<>();
+            index(itemLists, BuiltInRegistries.ITEM, byItem, pendingItems);
+            
+            this.byBlock = new IdentityHashMap<>();
+            this.pendingBlocks = new HashMap<>();
+            index(blockLists, BuiltInRegistries.BLOCK, byBlock, pendingBlocks);
+        }
+        
+        private static <T> void index(Map<Identifier, List<EventHandler>> lists, Registry<T> registry,
+                                      Map<T, EventHandler[]> resolved, Map<Identifier, EventHandler[]> pending) {
+            for (Map.Entry<Identifier, List<EventHandler>> entry : lists.entrySet()) {
+                EventHandler[] handlers = entry.getValue().toArray(NO_HANDLERS);
+                if (registry.containsKey(entry.getKey())) {
+                    resolved.put(registry.getValue(entry.getKey()), handlers);
+                } else {
+                    pending.put(entry.getKey(), handlers);
+                }
+            }
+        }
+        
+        boolean hasItemKeys() {
+            return !byItem.isEmpty() || !pendingItems.isEmpty();
+        }
+        
+        boolean hasBlockKeys() {
+            return !byBlock.isEmpty() || !pendingBlocks.isEmpty();
+        }
+    }
+    
+    /**
+     * Gets the current handler snapshot. The returned arrays must not be modified.
+     */
+    Handlers getIndex() {
+        return handlers;
+    }
+    
+    /**
+     * Gets every handler in registration order. The returned array must not be modified.
+     */
+    EventHandler[] getHandlers() {
+        return handlers.all;
+    }
+    
+    /**
+     * Checks if any JavaScript handler is registered for this event.
+     */
+    public boolean hasHandlers() {
+        return handlers.all.length != 0;
+    }
+    
+    public int getHandlerCount() {
+        return handlers.all.length;
+    }
+    
+    /**
+     * Marks this event as cancellable. Cancellable events need the handler's answer before
+     * the tick continues, so they can't have async handlers.
+     */
+    public void markCancellable() {
+        cancellable = true;
+    }
+    
+    public boolean isCancellable() {
+        return cancellable;
+    }
+    
+    /**
+     * Checks if the Fabric listener for this event should do any work.
+     * This is a single volatile read, cheap enough to run on every callback.
+     */
+    public boolean isArmed() {
+        return armed;
+    }
+    
+    /**
+     * Binds the code that registers the Fabric listener for this event.
+     * The installer runs once, the first time the channel is armed (or right away if it already is).
+     */
+    public synchronized void bindListener(Runnable installer) {
+        this.listenerInstaller = installer;
+        if (armed) {
+            installListener();
+        }
+    }
+    
+    public synchronized boolean isListenerInstalled() {
+        return listenerInstalled;
+    }
+    
+    synchronized void add(EventHandler handler) {
+        EventHandler[] current = handlers.all;
+        EventHandler[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = handler;
+        handlers = new Handlers(updated);
+        
+        if (!armed) {
+            armed = true;
+            installListener();
+            NotEnoughRecipes.LOGGER.debug("Armed event '{}'", name);
+        }
+    }
+    
+    /**
+     * Removes all handlers matching the predicate.
+     * @return the number of handlers removed
+     */
+    synchronized int removeIf(Predicate<EventHandler> predicate) {
+        EventHandler[] current = handlers.all;
+        EventHandler[] kept = new EventHandler[current.length];
+        int count = 0;
+        for (EventHandler handler : current) {
+            if (!predicate.test(handler)) {
+                kept[count++] = handler;
+            }
+        }
+        
+        int removed = current.length - count;
+        if (removed > 0) {
+            handlers = count == 0 ? Handlers.EMPTY : new Handlers(Arrays.copyOf(kept, count));
+            if (count == 0) {
+                disarm();
+            }
+        }
+        return removed;
+    }
+    
+    /**
+     * Rebuilds the handler index so filter ids registered since the last build resolve to their item or block.
+     */
+    synchronized void reindex() {
+        Handlers current = handlers;
+        if (!current.pendingItems.isEmpty() || !current.pendingBlocks.isEmpty()) {
+            handlers = new Handlers(current.all);
+        }
+    }
+    
+    synchronized void clear() {
+        handlers = Handlers.EMPTY;
+        disarm();
+    }
+    
+    private void disarm() {
+        if (armed) {
+            armed = false;
+            NotEnoughRecipes.LOGGER.debug("Disarmed event '{}'", name);
+        }
+    }
+    
+    private void installListener() {
+        if (!listenerInstalled && listenerInstaller != null) {
+            listenerInstalled = true;
+            listenerInstaller.run();
+            NotEnoughRecipes.LOGGER.debug("Installed Fabric listener for event '{}'", name);
+        }
+    }
+}
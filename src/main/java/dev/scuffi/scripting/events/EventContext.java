@@ -4,31 +4,59 @@ import dev.scuffi.scripting.api.PlayerWrapper;
 import dev.scuffi.scripting.api.WorldWrapper;
 import dev.scuffi.scripting.api.ItemStackWrapper;
 import dev.scuffi.scripting.api.BlockPosWrapper;
+import dev.scuffi.scripting.api.WrapperCache;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.InteractionHand;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.Entity;
-import org.graalvm.polyglot.HostAccess;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.item.BlockItem;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.level.block.Block;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyArray;
+import org.graalvm.polyglot.proxy.ProxyExecutable;
+import org.graalvm.polyglot.proxy.ProxyObject;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Base class for event context objects passed to JavaScript event handlers.
  * Wraps Minecraft event data in a JavaScript-friendly format.
+ * 
+ * Contexts only hold the raw Minecraft objects. Wrappers and derived values such as block
+ * names are created the first time a handler reads them, so a handler that only looks at
+ * {@code ctx.player} doesn't pay for the rest. Scripts see each context as a plain object
+ * through {@link ProxyObject}.
+ * 
+ * Contexts of high-frequency events are reused through a {@link ContextPool}; handlers get
+ * such a context through a view that only works while they run.
  */
-public class EventContext {
+public class EventContext implements ProxyObject {
     
-    @HostAccess.Export
-    public boolean cancelled = false;
+    private static final String[] MEMBERS = {
+            "cancelled", "result", "cancel", "setResult", "isCancelled", "getResult"
+    };
     
-    @HostAccess.Export
+    public boolean cancelled = false;
     public String result = null;
     
+    // Methods scripts have read, created on first access and reused after that
+    private Map<String, ProxyExecutable> methods;
+    
     /**
      * Cancels the event (if cancellable).
      */
-    @HostAccess.Export
     public void cancel() {
         this.cancelled = true;
     }
@@ -37,7 +65,6 @@ public class EventContext {
      * Sets the result of the event.
      * @param result The result string (e.g., "SUCCESS", "FAIL", "PASS")
      */
-    @HostAccess.Export
     public void setResult(String result) {
         this.result = result;
     }
@@ -45,7 +72,6 @@ public class EventContext {
     /**
      * Checks if the event was cancelled.
      */
-    @HostAccess.Export
     public boolean isCancelled() {
         return cancelled;
     }
@@ -53,438 +79,1214 @@ public class EventContext {
     /**
      * Gets the result of the event.
      */
-    @HostAccess.Export
     public String getResult() {
         return result;
     }
     
-    // Specific event context types
+    /**
+     * Narrows this context to the stagger slot a staggered handler runs in this tick.
+     * Contexts about a single player match when it's that player's turn; contexts without a
+     * player always match. Called with {@code (1, 0)} afterwards to undo any narrowing.
+     * 
+     * @param interval The handler's interval in ticks
+     * @param slot The slot for the current tick, from 0 to interval - 1
+     * @return true if the handler should run for this context
+     */
+    public boolean selectStaggerSlot(int interval, int slot) {
+        return true;
+    }
+    
+    // === Filter keys ===
     
     /**
-     * Context for item use events.
+     * Gets the item an {@code item} handler filter is matched against, or null if the event has none.
+     */
+    Item getFilterItem() {
+        return null;
+    }
+    
+    /**
+     * Gets the block a {@code block} handler filter is matched against, or null if the event has none.
+     */
+    Block getFilterBlock() {
+        return null;
+    }
+    
+    /**
+     * Gets the entity type an {@code entityType} handler filter is matched against, or null if the event has none.
+     */
+    EntityType<?> getFilterEntityType() {
+        return null;
+    }
+    
+    /**
+     * Gets the level a {@code dimension} handler filter is matched against, or null if the event has none.
+     */
+    Level getFilterLevel() {
+        return null;
+    }
+    
+    /**
+     * Gets the stagger slot of an entity, spreading entities evenly over the interval.
      */
-    public static class ItemUseContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
+    protected static int staggerSlot(Entity entity, int interval) {
+        return Math.floorMod(entity.getId(), interval);
+    }
+    
+    // === Async snapshot ===
+    
+    private ProxyObject snapshot;
+    
+    /**
+     * Gets an immutable copy of this event's data for async handlers.
+     * Built on the server thread the first time an async handler needs it, then shared.
+     */
+    final ProxyObject snapshot(String eventName) {
+        if (snapshot == null) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("event", eventName);
+            writeSnapshot(data);
+            snapshot = ProxyObject.fromMap(Collections.unmodifiableMap(data));
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Adds this event's data to an async snapshot.
+     * Values must be strings, numbers, booleans, null or other snapshots; never live game objects.
+     */
+    protected void writeSnapshot(Map<String, Object> data) {
+    }
+    
+    protected static ProxyObject snapshotOf(Entity entity) {
+        if (entity == null) {
+            return null;
+        }
         
-        @HostAccess.Export
-        public final WorldWrapper world;
+        Map<String, Object> data = new HashMap<>();
+        data.put("uuid", entity.getUUID().toString());
+        data.put("name", entity.getName().getString());
+        data.put("type", BuiltInRegistries.ENTITY_TYPE.getKey(entity.getType()).toString());
+        data.put("x", entity.getX());
+        data.put("y", entity.getY());
+        data.put("z", entity.getZ());
+        data.put("dimension", dimensionOf(entity.level()));
+        if (entity instanceof LivingEntity living) {
+            data.put("health", living.getHealth());
+            data.put("maxHealth", living.getMaxHealth());
+        }
+        return ProxyObject.fromMap(Collections.unmodifiableMap(data));
+    }
+    
+    protected static String dimensionOf(Level level) {
+        return level.dimension().identifier().toString();
+    }
+    
+    // === Pooling ===
+    
+    // Counts the fires a pooled context was used for; stays 0 for contexts created directly
+    private int generation = 0;
+    private boolean inUse = false;
+    // Set once a script used this context outside its fire; the pool then drops it
+    private boolean escaped = false;
+    // What handlers are given; one per pooled context, reused for every fire
+    private PooledView view;
+    
+    /**
+     * Clears the per-fire state of a pooled context before it's reused.
+     * Pooled subclasses call this from their {@code reset} methods.
+     */
+    protected void resetState() {
+        cancelled = false;
+        result = null;
+        snapshot = null;
+    }
+    
+    void activate() {
+        generation++;
+        inUse = true;
+    }
+    
+    void release() {
+        inUse = false;
+    }
+    
+    /**
+     * Checks if a script used this context outside a fire, so the pool must not reuse it.
+     */
+    boolean hasEscaped() {
+        return escaped;
+    }
+    
+    /**
+     * Gets the object passed to handlers. A pooled context is reset for the next fire once its
+     * handlers return, so handlers get a view stamped with the current fire instead.
+     */
+    final Object scriptView() {
+        if (generation == 0) {
+            return this;
+        }
+        if (view == null) {
+            view = new PooledView(this);
+        }
+        view.generation = generation;
+        return view;
+    }
+    
+    /**
+     * A pooled context as seen by handlers. It takes the context's generation when a handler
+     * is called, and throws if a script keeps it and uses it once that fire is over. The context
+     * is then marked escaped and never reused, so the kept view stays dead for good.
+     */
+    private static final class PooledView implements ProxyObject {
+        private final EventContext context;
+        private int generation;
         
-        @HostAccess.Export
-        public final ItemStackWrapper itemStack;
+        PooledView(EventContext context) {
+            this.context = context;
+        }
         
-        @HostAccess.Export
-        public final String hand;
+        private EventContext live() {
+            if (context.escaped || !context.inUse || context.generation != generation) {
+                context.escaped = true;
+                throw new IllegalStateException("Event context used after its handler returned; "
+                        + "copy the values you need instead of keeping the context");
+            }
+            return context;
+        }
         
-        public ItemUseContext(Player player, Level world, ItemStack itemStack, InteractionHand hand) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
-            this.itemStack = new ItemStackWrapper(itemStack);
-            this.hand = hand.name();
+        @Override
+        public Object getMember(String key) {
+            return live().getMember(key);
+        }
+        
+        @Override
+        public Object getMemberKeys() {
+            return context.getMemberKeys();
+        }
+        
+        @Override
+        public boolean hasMember(String key) {
+            return context.hasMember(key);
+        }
+        
+        @Override
+        public void putMember(String key, Value value) {
+            live().putMember(key, value);
         }
     }
     
+    // === JavaScript view ===
+    
     /**
-     * Context for block break events.
+     * Gets the names of the members scripts can read on this context.
+     * Subclasses extend their parent's array with {@link #members(String[], String...)}.
      */
-    public static class BlockBreakContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
+    protected String[] getMemberNames() {
+        return MEMBERS;
+    }
+    
+    @Override
+    public final Object getMember(String key) {
+        return member(key);
+    }
+    
+    /**
+     * Gets a member by name. Subclasses handle their own members and defer the rest to their parent.
+     */
+    protected Object member(String key) {
+        return switch (key) {
+            case "cancelled" -> cancelled;
+            case "result" -> result;
+            case "cancel", "setResult", "isCancelled", "getResult" -> method(key);
+            default -> null;
+        };
+    }
+    
+    /**
+     * Runs a method member when a script calls it.
+     * Subclasses handle their own methods and defer the rest to their parent.
+     */
+    protected Object invoke(String key, Value[] args) {
+        return switch (key) {
+            case "cancel" -> {
+                cancel();
+                yield null;
+            }
+            case "setResult" -> {
+                setResult(args.length > 0 && !args[0].isNull() ? args[0].asString() : null);
+                yield null;
+            }
+            case "isCancelled" -> isCancelled();
+            case "getResult" -> getResult();
+            default -> null;
+        };
+    }
+    
+    @Override
+    public Object getMemberKeys() {
+        return ProxyArray.fromArray((Object[]) getMemberNames().clone());
+    }
+    
+    @Override
+    public boolean hasMember(String key) {
+        for (String member : getMemberNames()) {
+            if (member.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public void putMember(String key, Value value) {
+        switch (key) {
+            case "cancelled" -> cancelled = value.asBoolean();
+            case "result" -> result = value.isNull() ? null : value.asString();
+            default -> throw new UnsupportedOperationException("Event context member '" + key + "' is read-only");
+        }
+    }
+    
+    /**
+     * Gets the JavaScript method for a member, which calls {@link #invoke} with its name.
+     * Created the first time a script reads it, then reused for the life of the context.
+     */
+    protected final ProxyExecutable method(String key) {
+        if (methods == null) {
+            methods = new HashMap<>(4);
+        }
+        ProxyExecutable method = methods.get(key);
+        if (method == null) {
+            method = args -> invoke(key, args);
+            methods.put(key, method);
+        }
+        return method;
+    }
+    
+    protected static String[] members(String[] inherited, String... own) {
+        String[] all = Arrays.copyOf(inherited, inherited.length + own.length);
+        System.arraycopy(own, 0, all, inherited.length, own.length);
+        return all;
+    }
+    
+    /**
+     * Base for contexts that involve a player, with lazily wrapped {@code player} and {@code world}.
+     */
+    public abstract static class PlayerEventContext extends EventContext {
+        private static final String[] MEMBERS = members(EventContext.MEMBERS, "player", "world");
+        
+        private Player rawPlayer;
+        private Level rawWorld;
+        private PlayerWrapper player;
+        private WorldWrapper world;
+        
+        protected PlayerEventContext(Player player, Level world) {
+            this.rawPlayer = player;
+            this.rawWorld = world;
+        }
+        
+        /**
+         * Points a pooled context at another player, keeping the wrappers that still apply.
+         */
+        protected void reset(Player player, Level world) {
+            resetState();
+            if (rawPlayer != player) {
+                rawPlayer = player;
+                this.player = null;
+            }
+            if (rawWorld != world) {
+                rawWorld = world;
+                this.world = null;
+            }
+        }
+        
+        public PlayerWrapper getPlayer() {
+            if (player == null) {
+                player = WrapperCache.player(rawPlayer);
+            }
+            return player;
+        }
+        
+        public WorldWrapper getWorld() {
+            if (world == null) {
+                world = WrapperCache.world(rawWorld);
+            }
+            return world;
+        }
+        
+        @Override
+        public boolean selectStaggerSlot(int interval, int slot) {
+            return staggerSlot(rawPlayer, interval) == slot;
+        }
+        
+        @Override
+        Level getFilterLevel() {
+            return rawWorld;
+        }
+        
+        Player getRawPlayer() {
+            return rawPlayer;
+        }
+        
+        @Override
+        protected void writeSnapshot(Map<String, Object> data) {
+            data.put("player", snapshotOf(rawPlayer));
+            data.put("dimension", dimensionOf(rawWorld));
+        }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "player" -> getPlayer();
+                case "world" -> getWorld();
+                default -> super.member(key);
+            };
+        }
+    }
+    
+    /**
+     * Base for contexts about a non-player entity, with a lazily wrapped {@code world}.
+     */
+    public abstract static class EntityEventContext extends EventContext {
+        private static final String[] MEMBERS = members(EventContext.MEMBERS, "world", "entityType", "getEntity");
+        
+        private Entity entity;
+        private Level rawWorld;
+        private WorldWrapper world;
+        private String entityType;
+        
+        protected EntityEventContext(Entity entity, Level world) {
+            this.entity = entity;
+            this.rawWorld = world;
+        }
+        
+        /**
+         * Points a pooled context at another entity, keeping the wrappers that still apply.
+         */
+        protected void reset(Entity entity, Level world) {
+            resetState();
+            if (this.entity == null || this.entity.getType() != entity.getType()) {
+                entityType = null;
+            }
+            this.entity = entity;
+            if (rawWorld != world) {
+                rawWorld = world;
+                this.world = null;
+            }
+        }
+        
+        public WorldWrapper getWorld() {
+            if (world == null) {
+                world = WrapperCache.world(rawWorld);
+            }
+            return world;
+        }
+        
+        public String getEntityType() {
+            if (entityType == null) {
+                entityType = entity.getType().toString();
+            }
+            return entityType;
+        }
+        
+        public Object getEntity() {
+            return entity;
+        }
+        
+        @Override
+        EntityType<?> getFilterEntityType() {
+            return entity.getType();
+        }
+        
+        @Override
+        Level getFilterLevel() {
+            return rawWorld;
+        }
+        
+        @Override
+        protected void writeSnapshot(Map<String, Object> data) {
+            data.put("entity", snapshotOf(entity));
+            data.put("dimension", dimensionOf(rawWorld));
+        }
         
-        @HostAccess.Export
-        public final WorldWrapper world;
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "world" -> getWorld();
+                case "entityType" -> getEntityType();
+                case "getEntity" -> method(key);
+                default -> super.member(key);
+            };
+        }
+        
+        @Override
+        protected Object invoke(String key, Value[] args) {
+            return "getEntity".equals(key) ? getEntity() : super.invoke(key, args);
+        }
+    }
+    
+    // Specific event context types
+    
+    /**
+     * Context for item use events.
+     */
+    public static class ItemUseContext extends PlayerEventContext {
+        private static final String[] MEMBERS = members(PlayerEventContext.MEMBERS, "itemStack", "hand");
+        
+        private final ItemStack stack;
+        private final InteractionHand hand;
+        private ItemStackWrapper itemStack;
         
-        @HostAccess.Export
-        public final BlockPosWrapper pos;
+        public ItemUseContext(Player player, Level world, ItemStack itemStack, InteractionHand hand) {
+            super(player, world);
+            this.stack = itemStack;
+            this.hand = hand;
+        }
+        
+        public ItemStackWrapper getItemStack() {
+            if (itemStack == null) {
+                itemStack = new ItemStackWrapper(stack);
+            }
+            return itemStack;
+        }
         
-        @HostAccess.Export
-        public final String blockId;
+        public String getHand() {
+            return hand.name();
+        }
+        
+        @Override
+        Item getFilterItem() {
+            return stack.getItem();
+        }
         
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "itemStack" -> getItemStack();
+                case "hand" -> getHand();
+                default -> super.member(key);
+            };
+        }
+    }
+    
+    /**
+     * Context for block break events.
+     */
+    public static class BlockBreakContext extends PlayerEventContext {
+        private static final String[] MEMBERS = members(PlayerEventContext.MEMBERS, "pos", "blockId", "getBlockState");
+        
+        private final BlockPos rawPos;
         private final BlockState blockState;
+        private BlockPosWrapper pos;
+        private String blockId;
         
         public BlockBreakContext(Player player, Level world, BlockPos pos, BlockState state) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
-            this.pos = new BlockPosWrapper(pos);
+            super(player, world);
+            this.rawPos = pos;
             this.blockState = state;
-            this.blockId = state.getBlock().getName().getString();
         }
         
-        @HostAccess.Export
+        public BlockPosWrapper getPos() {
+            if (pos == null) {
+                pos = new BlockPosWrapper(rawPos);
+            }
+            return pos;
+        }
+        
+        public String getBlockId() {
+            if (blockId == null) {
+                blockId = blockState.getBlock().getName().getString();
+            }
+            return blockId;
+        }
+        
         public Object getBlockState() {
             return blockState;
         }
+        
+        @Override
+        Block getFilterBlock() {
+            return blockState.getBlock();
+        }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "pos" -> getPos();
+                case "blockId" -> getBlockId();
+                case "getBlockState" -> method(key);
+                default -> super.member(key);
+            };
+        }
+        
+        @Override
+        protected Object invoke(String key, Value[] args) {
+            return "getBlockState".equals(key) ? getBlockState() : super.invoke(key, args);
+        }
     }
     
     /**
      * Context for entity attack events.
      */
-    public static class EntityAttackContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
-        
-        @HostAccess.Export
-        public final WorldWrapper world;
-        
-        @HostAccess.Export
-        public final String entityType;
+    public static class EntityAttackContext extends PlayerEventContext {
+        private static final String[] MEMBERS = members(PlayerEventContext.MEMBERS, "entityType", "getEntity");
         
         private final Entity entity;
+        private String entityType;
         
         public EntityAttackContext(Player player, Level world, Entity entity) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
+            super(player, world);
             this.entity = entity;
-            this.entityType = entity.getType().toString();
         }
         
-        @HostAccess.Export
+        public String getEntityType() {
+            if (entityType == null) {
+                entityType = entity.getType().toString();
+            }
+            return entityType;
+        }
+        
         public Object getEntity() {
             return entity;
         }
+        
+        @Override
+        EntityType<?> getFilterEntityType() {
+            return entity.getType();
+        }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "entityType" -> getEntityType();
+                case "getEntity" -> method(key);
+                default -> super.member(key);
+            };
+        }
+        
+        @Override
+        protected Object invoke(String key, Value[] args) {
+            return "getEntity".equals(key) ? getEntity() : super.invoke(key, args);
+        }
     }
     
     /**
      * Context for player tick events.
      */
-    public static class PlayerTickContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
+    public static class PlayerTickContext extends PlayerEventContext {
+        public PlayerTickContext(Player player) {
+            super(player, player.level());
+        }
         
-        @HostAccess.Export
-        public final WorldWrapper world;
+        // Empty instance for a ContextPool, set with reset before every fire
+        PlayerTickContext() {
+            super(null, null);
+        }
         
-        public PlayerTickContext(Player player) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(player.level());
+        void reset(Player player) {
+            reset(player, player.level());
         }
     }
     
     /**
-     * Context for block placed events.
+     * Context for the batched players tick event.
+     * One call per handler per tick receives every online player through a reused array view.
      */
-    public static class BlockPlacedContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
+    public static class PlayersTickContext extends EventContext {
+        private static final String[] MEMBERS = members(EventContext.MEMBERS, "players", "tick");
+        
+        private final PlayerListView players;
+        private final long tick;
+        
+        public PlayersTickContext(PlayerListView players, long tick) {
+            this.players = players;
+            this.tick = tick;
+        }
+        
+        public PlayerListView getPlayers() {
+            return players;
+        }
+        
+        public long getTick() {
+            return tick;
+        }
         
-        @HostAccess.Export
-        public final WorldWrapper world;
+        /**
+         * Limits the player view to the players whose turn it is; handlers with nobody to handle are skipped.
+         */
+        @Override
+        public boolean selectStaggerSlot(int interval, int slot) {
+            return players.select(interval, slot) > 0;
+        }
         
-        @HostAccess.Export
-        public final BlockPosWrapper pos;
+        @Override
+        protected void writeSnapshot(Map<String, Object> data) {
+            List<ServerPlayer> online = players.getPlayers();
+            Object[] snapshots = new Object[online.size()];
+            for (int i = 0; i < snapshots.length; i++) {
+                snapshots[i] = snapshotOf(online.get(i));
+            }
+            data.put("players", ProxyArray.fromArray(snapshots));
+            data.put("tick", tick);
+        }
         
-        @HostAccess.Export
-        public final String blockId;
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
         
-        @HostAccess.Export
-        public final ItemStackWrapper itemStack;
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "players" -> getPlayers();
+                case "tick" -> getTick();
+                default -> super.member(key);
+            };
+        }
+    }
+    
+    /**
+     * Context for block placed events.
+     */
+    public static class BlockPlacedContext extends PlayerEventContext {
+        private static final String[] MEMBERS = members(PlayerEventContext.MEMBERS, "pos", "blockId", "itemStack");
+        
+        private final BlockPos rawPos;
+        private final BlockState blockState;
+        private final ItemStack stack;
+        private BlockPosWrapper pos;
+        private String blockId;
+        private ItemStackWrapper itemStack;
         
         public BlockPlacedContext(Player player, Level world, BlockPos pos, BlockState state, ItemStack stack) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
-            this.pos = new BlockPosWrapper(pos);
-            this.blockId = state.getBlock().getName().getString();
-            this.itemStack = new ItemStackWrapper(stack);
+            super(player, world);
+            this.rawPos = pos;
+            this.blockState = state;
+            this.stack = stack;
+        }
+        
+        public BlockPosWrapper getPos() {
+            if (pos == null) {
+                pos = new BlockPosWrapper(rawPos);
+            }
+            return pos;
+        }
+        
+        public String getBlockId() {
+            if (blockId == null) {
+                blockId = blockState.getBlock().getName().getString();
+            }
+            return blockId;
+        }
+        
+        public ItemStackWrapper getItemStack() {
+            if (itemStack == null) {
+                itemStack = new ItemStackWrapper(stack);
+            }
+            return itemStack;
+        }
+        
+        @Override
+        Item getFilterItem() {
+            return stack.getItem();
+        }
+        
+        @Override
+        Block getFilterBlock() {
+            // The block being placed, not the one currently at the position
+            return stack.getItem() instanceof BlockItem blockItem ? blockItem.getBlock() : blockState.getBlock();
+        }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "pos" -> getPos();
+                case "blockId" -> getBlockId();
+                case "itemStack" -> getItemStack();
+                default -> super.member(key);
+            };
         }
     }
     
     /**
-     * Context for item consumed events (eating/drinking).
+     * Base for contexts that carry a single item stack.
      */
-    public static class ItemConsumedContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
+    public abstract static class ItemStackEventContext extends PlayerEventContext {
+        private static final String[] MEMBERS = members(PlayerEventContext.MEMBERS, "itemStack");
+        
+        private final ItemStack stack;
+        private ItemStackWrapper itemStack;
+        
+        protected ItemStackEventContext(Player player, Level world, ItemStack itemStack) {
+            super(player, world);
+            this.stack = itemStack;
+        }
+        
+        public ItemStackWrapper getItemStack() {
+            if (itemStack == null) {
+                itemStack = new ItemStackWrapper(stack);
+            }
+            return itemStack;
+        }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
         
-        @HostAccess.Export
-        public final WorldWrapper world;
+        @Override
+        Item getFilterItem() {
+            return stack.getItem();
+        }
         
-        @HostAccess.Export
-        public final ItemStackWrapper itemStack;
+        @Override
+        protected void writeSnapshot(Map<String, Object> data) {
+            super.writeSnapshot(data);
+            data.put("item", BuiltInRegistries.ITEM.getKey(stack.getItem()).toString());
+            data.put("count", stack.getCount());
+        }
         
+        @Override
+        protected Object member(String key) {
+            return "itemStack".equals(key) ? getItemStack() : super.member(key);
+        }
+    }
+    
+    /**
+     * Context for item consumed events (eating/drinking).
+     */
+    public static class ItemConsumedContext extends ItemStackEventContext {
         public ItemConsumedContext(Player player, Level world, ItemStack itemStack) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
-            this.itemStack = new ItemStackWrapper(itemStack);
+            super(player, world, itemStack);
         }
     }
     
     /**
      * Context for item pickup events.
      */
-    public static class ItemPickupContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
-        
-        @HostAccess.Export
-        public final WorldWrapper world;
-        
-        @HostAccess.Export
-        public final ItemStackWrapper itemStack;
+    public static class ItemPickupContext extends ItemStackEventContext {
+        private static final String[] MEMBERS = members(ItemStackEventContext.MEMBERS, "getItemEntity");
         
         private final Entity entity;
         
         public ItemPickupContext(Player player, Level world, ItemStack itemStack, Entity entity) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
-            this.itemStack = new ItemStackWrapper(itemStack);
+            super(player, world, itemStack);
             this.entity = entity;
         }
         
-        @HostAccess.Export
         public Object getItemEntity() {
             return entity;
         }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return "getItemEntity".equals(key) ? method(key) : super.member(key);
+        }
+        
+        @Override
+        protected Object invoke(String key, Value[] args) {
+            return "getItemEntity".equals(key) ? getItemEntity() : super.invoke(key, args);
+        }
     }
     
     /**
      * Context for item drop events.
      */
-    public static class ItemDropContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
-        
-        @HostAccess.Export
-        public final WorldWrapper world;
-        
-        @HostAccess.Export
-        public final ItemStackWrapper itemStack;
-        
+    public static class ItemDropContext extends ItemStackEventContext {
         public ItemDropContext(Player player, Level world, ItemStack itemStack) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
-            this.itemStack = new ItemStackWrapper(itemStack);
+            super(player, world, itemStack);
         }
     }
     
     /**
      * Context for item craft events.
      */
-    public static class ItemCraftContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
-        
-        @HostAccess.Export
-        public final WorldWrapper world;
-        
-        @HostAccess.Export
-        public final ItemStackWrapper itemStack;
-        
+    public static class ItemCraftContext extends ItemStackEventContext {
         public ItemCraftContext(Player player, Level world, ItemStack itemStack) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
-            this.itemStack = new ItemStackWrapper(itemStack);
+            super(player, world, itemStack);
         }
     }
     
     /**
      * Context for entity interact events (right-click entity).
      */
-    public static class EntityInteractContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
-        
-        @HostAccess.Export
-        public final WorldWrapper world;
-        
-        @HostAccess.Export
-        public final String entityType;
-        
-        @HostAccess.Export
-        public final String hand;
+    public static class EntityInteractContext extends PlayerEventContext {
+        private static final String[] MEMBERS = members(PlayerEventContext.MEMBERS, "entityType", "hand", "getEntity");
         
         private final Entity entity;
+        private final InteractionHand hand;
+        private String entityType;
         
         public EntityInteractContext(Player player, Level world, Entity entity, InteractionHand hand) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
+            super(player, world);
             this.entity = entity;
-            this.entityType = entity.getType().toString();
-            this.hand = hand.name();
+            this.hand = hand;
+        }
+        
+        public String getEntityType() {
+            if (entityType == null) {
+                entityType = entity.getType().toString();
+            }
+            return entityType;
+        }
+        
+        public String getHand() {
+            return hand.name();
         }
         
-        @HostAccess.Export
         public Object getEntity() {
             return entity;
         }
+        
+        @Override
+        EntityType<?> getFilterEntityType() {
+            return entity.getType();
+        }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "entityType" -> getEntityType();
+                case "hand" -> getHand();
+                case "getEntity" -> method(key);
+                default -> super.member(key);
+            };
+        }
+        
+        @Override
+        protected Object invoke(String key, Value[] args) {
+            return "getEntity".equals(key) ? getEntity() : super.invoke(key, args);
+        }
     }
     
     /**
      * Context for block interact events (right-click block).
      */
-    public static class BlockInteractContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
-        
-        @HostAccess.Export
-        public final WorldWrapper world;
-        
-        @HostAccess.Export
-        public final BlockPosWrapper pos;
-        
-        @HostAccess.Export
-        public final String blockId;
-        
-        @HostAccess.Export
-        public final String hand;
-        
-        @HostAccess.Export
-        public final String face;
+    public static class BlockInteractContext extends PlayerEventContext {
+        private static final String[] MEMBERS = members(PlayerEventContext.MEMBERS,
+                "pos", "blockId", "hand", "face", "getBlockState");
         
+        private final BlockPos rawPos;
         private final BlockState blockState;
+        private final InteractionHand hand;
+        private final String face;
+        private BlockPosWrapper pos;
+        private String blockId;
         
         public BlockInteractContext(Player player, Level world, BlockPos pos, BlockState state, InteractionHand hand, String face) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
-            this.pos = new BlockPosWrapper(pos);
+            super(player, world);
+            this.rawPos = pos;
             this.blockState = state;
-            this.blockId = state.getBlock().getName().getString();
-            this.hand = hand.name();
+            this.hand = hand;
             this.face = face;
         }
         
-        @HostAccess.Export
+        public BlockPosWrapper getPos() {
+            if (pos == null) {
+                pos = new BlockPosWrapper(rawPos);
+            }
+            return pos;
+        }
+        
+        public String getBlockId() {
+            if (blockId == null) {
+                blockId = blockState.getBlock().getName().getString();
+            }
+            return blockId;
+        }
+        
+        public String getHand() {
+            return hand.name();
+        }
+        
+        public String getFace() {
+            return face;
+        }
+        
         public Object getBlockState() {
             return blockState;
         }
+        
+        @Override
+        Block getFilterBlock() {
+            return blockState.getBlock();
+        }
+        
+        /**
+         * Matches {@code item} filters against the item used on the block.
+         */
+        @Override
+        Item getFilterItem() {
+            return getRawPlayer().getItemInHand(hand).getItem();
+        }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "pos" -> getPos();
+                case "blockId" -> getBlockId();
+                case "hand" -> getHand();
+                case "face" -> getFace();
+                case "getBlockState" -> method(key);
+                default -> super.member(key);
+            };
+        }
+        
+        @Override
+        protected Object invoke(String key, Value[] args) {
+            return "getBlockState".equals(key) ? getBlockState() : super.invoke(key, args);
+        }
     }
     
     /**
      * Context for living hurt events (damage).
      */
-    public static class LivingHurtContext extends EventContext {
-        @HostAccess.Export
-        public final WorldWrapper world;
-        
-        @HostAccess.Export
-        public final String entityType;
+    public static class LivingHurtContext extends EntityEventContext {
+        private static final String[] MEMBERS = members(EntityEventContext.MEMBERS, "damage", "damageSource", "attacker");
         
-        @HostAccess.Export
-        public final float damage;
+        private float damage;
+        private String damageSource;
+        private Player rawAttacker; // May be null
+        private PlayerWrapper attacker;
         
-        @HostAccess.Export
-        public final String damageSource;
-        
-        @HostAccess.Export
-        public PlayerWrapper attacker; // May be null
+        public LivingHurtContext(Entity entity, Level world, float damage, String damageSource, Player attacker) {
+            super(entity, world);
+            this.damage = damage;
+            this.damageSource = damageSource;
+            this.rawAttacker = attacker;
+        }
         
-        private final Entity entity;
+        // Empty instance for a ContextPool, set with reset before every fire
+        LivingHurtContext() {
+            super(null, null);
+        }
         
-        public LivingHurtContext(Entity entity, Level world, float damage, String damageSource, Player attacker) {
-            this.world = new WorldWrapper(world);
-            this.entity = entity;
-            this.entityType = entity.getType().toString();
+        void reset(Entity entity, Level world, float damage, String damageSource, Player attacker) {
+            reset(entity, world);
             this.damage = damage;
             this.damageSource = damageSource;
-            this.attacker = attacker != null ? new PlayerWrapper(attacker) : null;
+            if (rawAttacker != attacker) {
+                rawAttacker = attacker;
+                this.attacker = null;
+            }
         }
         
-        @HostAccess.Export
-        public Object getEntity() {
-            return entity;
+        public float getDamage() {
+            return damage;
+        }
+        
+        public String getDamageSource() {
+            return damageSource;
+        }
+        
+        public PlayerWrapper getAttacker() {
+            if (attacker == null && rawAttacker != null) {
+                attacker = WrapperCache.player(rawAttacker);
+            }
+            return attacker;
+        }
+        
+        @Override
+        protected void writeSnapshot(Map<String, Object> data) {
+            super.writeSnapshot(data);
+            data.put("damage", damage);
+            data.put("damageSource", damageSource);
+            data.put("attacker", snapshotOf(rawAttacker));
+        }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "damage" -> getDamage();
+                case "damageSource" -> getDamageSource();
+                case "attacker" -> getAttacker();
+                default -> super.member(key);
+            };
         }
     }
     
     /**
      * Context for entity death events.
      */
-    public static class EntityDeathContext extends EventContext {
-        @HostAccess.Export
-        public final WorldWrapper world;
+    public static class EntityDeathContext extends EntityEventContext {
+        private static final String[] MEMBERS = members(EntityEventContext.MEMBERS, "damageSource", "killer");
         
-        @HostAccess.Export
-        public final String entityType;
+        private final String damageSource;
+        private final Player rawKiller; // May be null
+        private PlayerWrapper killer;
         
-        @HostAccess.Export
-        public final String damageSource;
+        public EntityDeathContext(Entity entity, Level world, String damageSource, Player killer) {
+            super(entity, world);
+            this.damageSource = damageSource;
+            this.rawKiller = killer;
+        }
         
-        @HostAccess.Export
-        public PlayerWrapper killer; // May be null
+        public String getDamageSource() {
+            return damageSource;
+        }
         
-        private final Entity entity;
+        public PlayerWrapper getKiller() {
+            if (killer == null && rawKiller != null) {
+                killer = WrapperCache.player(rawKiller);
+            }
+            return killer;
+        }
         
-        public EntityDeathContext(Entity entity, Level world, String damageSource, Player killer) {
-            this.world = new WorldWrapper(world);
-            this.entity = entity;
-            this.entityType = entity.getType().toString();
-            this.damageSource = damageSource;
-            this.killer = killer != null ? new PlayerWrapper(killer) : null;
+        @Override
+        protected void writeSnapshot(Map<String, Object> data) {
+            super.writeSnapshot(data);
+            data.put("damageSource", damageSource);
+            data.put("killer", snapshotOf(rawKiller));
         }
         
-        @HostAccess.Export
-        public Object getEntity() {
-            return entity;
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "damageSource" -> getDamageSource();
+                case "killer" -> getKiller();
+                default -> super.member(key);
+            };
         }
     }
     
     /**
      * Context for player death events.
      */
-    public static class PlayerDeathContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
-        
-        @HostAccess.Export
-        public final WorldWrapper world;
+    public static class PlayerDeathContext extends PlayerEventContext {
+        private static final String[] MEMBERS = members(PlayerEventContext.MEMBERS, "damageSource");
         
-        @HostAccess.Export
-        public final String damageSource;
+        private final String damageSource;
         
         public PlayerDeathContext(Player player, Level world, String damageSource) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
+            super(player, world);
             this.damageSource = damageSource;
         }
+        
+        public String getDamageSource() {
+            return damageSource;
+        }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected void writeSnapshot(Map<String, Object> data) {
+            super.writeSnapshot(data);
+            data.put("damageSource", damageSource);
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return "damageSource".equals(key) ? getDamageSource() : super.member(key);
+        }
     }
     
     /**
      * Context for player respawn events.
      */
-    public static class PlayerRespawnContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
-        
-        @HostAccess.Export
-        public final WorldWrapper world;
+    public static class PlayerRespawnContext extends PlayerEventContext {
+        private static final String[] MEMBERS = members(PlayerEventContext.MEMBERS, "conqueredEnd");
         
-        @HostAccess.Export
-        public final boolean conqueredEnd;
+        private final boolean conqueredEnd;
         
         public PlayerRespawnContext(Player player, Level world, boolean conqueredEnd) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
+            super(player, world);
             this.conqueredEnd = conqueredEnd;
         }
+        
+        public boolean isConqueredEnd() {
+            return conqueredEnd;
+        }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected void writeSnapshot(Map<String, Object> data) {
+            super.writeSnapshot(data);
+            data.put("conqueredEnd", conqueredEnd);
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return "conqueredEnd".equals(key) ? conqueredEnd : super.member(key);
+        }
     }
     
     /**
      * Context for player join events.
      */
-    public static class PlayerJoinContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
-        
-        @HostAccess.Export
-        public final WorldWrapper world;
-        
+    public static class PlayerJoinContext extends PlayerEventContext {
         public PlayerJoinContext(Player player, Level world) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
+            super(player, world);
         }
     }
     
     /**
      * Context for player leave events.
      */
-    public static class PlayerLeaveContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
-        
-        @HostAccess.Export
-        public final WorldWrapper world;
-        
+    public static class PlayerLeaveContext extends PlayerEventContext {
         public PlayerLeaveContext(Player player, Level world) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
+            super(player, world);
         }
     }
     
@@ -492,70 +1294,156 @@ public class EventContext {
      * Context for projectile hit events.
      */
     public static class ProjectileHitContext extends EventContext {
-        @HostAccess.Export
-        public final WorldWrapper world;
-        
-        @HostAccess.Export
-        public final String projectileType;
-        
-        @HostAccess.Export
-        public final String hitType; // "BLOCK", "ENTITY", or "MISS"
-        
-        @HostAccess.Export
-        public PlayerWrapper shooter; // May be null
-        
-        @HostAccess.Export
-        public BlockPosWrapper hitPos; // May be null
-        
-        @HostAccess.Export
-        public String hitEntityType; // May be null
+        private static final String[] MEMBERS = members(EventContext.MEMBERS,
+                "world", "projectileType", "hitType", "shooter", "hitPos", "hitEntityType", "getProjectile", "getHitEntity");
         
         private final Entity projectile;
-        private final Entity hitEntity;
+        private final Level rawWorld;
+        private final String hitType; // "BLOCK", "ENTITY", or "MISS"
+        private final Player rawShooter; // May be null
+        private final BlockPos rawHitPos; // May be null
+        private final Entity hitEntity; // May be null
+        private WorldWrapper world;
+        private PlayerWrapper shooter;
+        private BlockPosWrapper hitPos;
         
         public ProjectileHitContext(Entity projectile, Level world, String hitType, Player shooter, BlockPos hitPos, Entity hitEntity) {
-            this.world = new WorldWrapper(world);
             this.projectile = projectile;
-            this.projectileType = projectile.getType().toString();
+            this.rawWorld = world;
             this.hitType = hitType;
-            this.shooter = shooter != null ? new PlayerWrapper(shooter) : null;
-            this.hitPos = hitPos != null ? new BlockPosWrapper(hitPos) : null;
+            this.rawShooter = shooter;
+            this.rawHitPos = hitPos;
             this.hitEntity = hitEntity;
-            this.hitEntityType = hitEntity != null ? hitEntity.getType().toString() : null;
         }
         
-        @HostAccess.Export
+        public WorldWrapper getWorld() {
+            if (world == null) {
+                world = WrapperCache.world(rawWorld);
+            }
+            return world;
+        }
+        
+        public String getProjectileType() {
+            return projectile.getType().toString();
+        }
+        
+        public String getHitType() {
+            return hitType;
+        }
+        
+        public PlayerWrapper getShooter() {
+            if (shooter == null && rawShooter != null) {
+                shooter = WrapperCache.player(rawShooter);
+            }
+            return shooter;
+        }
+        
+        public BlockPosWrapper getHitPos() {
+            if (hitPos == null && rawHitPos != null) {
+                hitPos = new BlockPosWrapper(rawHitPos);
+            }
+            return hitPos;
+        }
+        
+        public String getHitEntityType() {
+            return hitEntity != null ? hitEntity.getType().toString() : null;
+        }
+        
         public Object getProjectile() {
             return projectile;
         }
         
-        @HostAccess.Export
         public Object getHitEntity() {
             return hitEntity;
         }
+        
+        @Override
+        EntityType<?> getFilterEntityType() {
+            return projectile.getType();
+        }
+        
+        @Override
+        protected void writeSnapshot(Map<String, Object> data) {
+            data.put("projectile", snapshotOf(projectile));
+            data.put("dimension", dimensionOf(rawWorld));
+            data.put("hitType", hitType);
+            data.put("shooter", snapshotOf(rawShooter));
+            data.put("hitEntity", snapshotOf(hitEntity));
+        }
+        
+        @Override
+        Level getFilterLevel() {
+            return rawWorld;
+        }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "world" -> getWorld();
+                case "projectileType" -> getProjectileType();
+                case "hitType" -> getHitType();
+                case "shooter" -> getShooter();
+                case "hitPos" -> getHitPos();
+                case "hitEntityType" -> getHitEntityType();
+                case "getProjectile", "getHitEntity" -> method(key);
+                default -> super.member(key);
+            };
+        }
+        
+        @Override
+        protected Object invoke(String key, Value[] args) {
+            return switch (key) {
+                case "getProjectile" -> getProjectile();
+                case "getHitEntity" -> getHitEntity();
+                default -> super.invoke(key, args);
+            };
+        }
     }
     
     /**
      * Context for container open events.
      */
-    public static class ContainerOpenContext extends EventContext {
-        @HostAccess.Export
-        public final PlayerWrapper player;
-        
-        @HostAccess.Export
-        public final WorldWrapper world;
+    public static class ContainerOpenContext extends PlayerEventContext {
+        private static final String[] MEMBERS = members(PlayerEventContext.MEMBERS, "pos", "containerType");
         
-        @HostAccess.Export
-        public final BlockPosWrapper pos;
-        
-        @HostAccess.Export
-        public final String containerType;
+        private final BlockPos rawPos;
+        private final String containerType;
+        private BlockPosWrapper pos;
         
         public ContainerOpenContext(Player player, Level world, BlockPos pos, String containerType) {
-            this.player = new PlayerWrapper(player);
-            this.world = new WorldWrapper(world);
-            this.pos = new BlockPosWrapper(pos);
+            super(player, world);
+            this.rawPos = pos;
             this.containerType = containerType;
         }
+        
+        public BlockPosWrapper getPos() {
+            if (pos == null) {
+                pos = new BlockPosWrapper(rawPos);
+            }
+            return pos;
+        }
+        
+        public String getContainerType() {
+            return containerType;
+        }
+        
+        @Override
+        protected String[] getMemberNames() {
+            return MEMBERS;
+        }
+        
+        @Override
+        protected Object member(String key) {
+            return switch (key) {
+                case "pos" -> getPos();
+                case "containerType" -> getContainerType();
+                default -> super.member(key);
+            };
+        }
     }
 }
@@ -0,0 +1,146 @@
+package dev.scuffi.scripting.events;
+
+import dev.scuffi.NotEnoughRecipes;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.Identifier;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import org.graalvm.polyglot.Value;
+
+/**
+ * A declarative handler filter, checked in Java before a handler is called.
+ * Created from the object passed to {@code Event.on(name, filter, callback)}, e.g.
+ * {@code { item: "ruby_wand" }}, {@code { block: "ner:foo" }}, {@code { entityType: "zombie" }}
+ * or {@code { dimension: "the_nether" }}.
+ * 
+ * Item and block ids without a namespace refer to NER items and blocks, like the rest of
+ * the script API. Entity types and dimensions without a namespace are vanilla ones.
+ */
+public final class EventFilter {
+    
+    private final Identifier item;
+    private final Identifier block;
+    private final Identifier entityType;
+    private final ResourceKey<Level> dimension;
+    
+    // Resolved once the ids are registered, so matching is an identity check
+    private Item resolvedItem;
+    private Block resolvedBlock;
+    private EntityType<?> resolvedEntityType;
+    
+    private EventFilter(Identifier item, Identifier block, Identifier entityType, ResourceKey<Level> dimension) {
+        this.item = item;
+        this.block = block;
+        this.entityType = entityType;
+        this.dimension = dimension;
+    }
+    
+    /**
+     * Compiles a filter object from JavaScript.
+     * 
+     * @throws IllegalArgumentException if the filter has unknown keys or invalid ids
+     */
+    public static EventFilter compile(Value spec) {
+        if (spec == null || spec.isNull() || !spec.hasMembers()) {
+            throw new IllegalArgumentException("filter must be an object");
+        }
+        
+        Identifier item = null;
+        Identifier block = null;
+        Identifier entityType = null;
+        ResourceKey<Level> dimension = null;
+        
+        for (String key : spec.getMemberKeys()) {
+            String value = spec.getMember(key).isString() ? spec.getMember(key).asString() : null;
+            if (value == null) {
+                throw new IllegalArgumentException("filter '" + key + "' must be a string id");
+            }
+            
+            switch (key) {
+                case "item" -> item = parseId(value, NotEnoughRecipes.MOD_ID);
+                case "block" -> block = parseId(value, NotEnoughRecipes.MOD_ID);
+                case "entityType" -> entityType = parseId(value, Identifier.DEFAULT_NAMESPACE);
+                case "dimension" -> dimension = ResourceKey.create(Registries.DIMENSION, parseId(value, Identifier.DEFAULT_NAMESPACE));
+                default -> throw new IllegalArgumentException("unknown filter '" + key + "'");
+            }
+        }
+        
+        return new EventFilter(item, block, entityType, dimension);
+    }
+    
+    private static Identifier parseId(String id, String defaultNamespace) {
+        Identifier parsed = Identifier.tryParse(id.contains(":") ? id : defaultNamespace + ":" + id);
+        if (parsed == null) {
+            throw new IllegalArgumentException("invalid id '" + id + "'");
+        }
+        return parsed;
+    }
+    
+    /**
+     * Gets the item id this filter requires, or null. Handlers with an item are indexed by it.
+     */
+    public Identifier getItem() {
+        return item;
+    }
+    
+    /**
+     * Gets the block id this filter requires, or null. Handlers with a block (and no item) are indexed by it.
+     */
+    public Identifier getBlock() {
+        return block;
+    }
+    
+    /**
+     * Checks if an event matches every part of this filter.
+     * Events that don't carry the filtered value (e.g. a block filter on player_join) never match.
+     */
+    public boolean matches(EventContext context) {
+        if (item != null) {
+            Item eventItem = context.getFilterItem();
+            if (eventItem == null) {
+                return false;
+            }
+            if (resolvedItem == null && BuiltInRegistries.ITEM.containsKey(item)) {
+                resolvedItem = BuiltInRegistries.ITEM.getValue(item);
+            }
+            if (eventItem != resolvedItem) {
+                return false;
+            }
+        }
+        if (block != null) {
+            Block eventBlock = context.getFilterBlock();
+            if (eventBlock == null) {
+                return false;
+            }
+            if (resolvedBlock == null && BuiltInRegistries.BLOCK.containsKey(block)) {
+                resolvedBlock = BuiltInRegistries.BLOCK.getValue(block);
+            }
+            if (eventBlock != resolvedBlock) {
+                return false;
+            }
+        }
+        if (entityType != null) {
+            EntityType<?> eventEntityType = context.getFilterEntityType();
+            if (eventEntityType == null) {
+                return false;
+            }
+            if (resolvedEntityType == null && BuiltInRegistries.ENTITY_TYPE.containsKey(entityType)) {
+                resolvedEntityType = BuiltInRegistries.ENTITY_TYPE.getValue(entityType);
+            }
+            if (eventEntityType != resolvedEntityType) {
+                return false;
+            }
+        }
+        if (dimension != null) {
+            Level eventLevel = context.getFilterLevel();
+            if (eventLevel == null || !dimension.equals(eventLevel.dimension())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
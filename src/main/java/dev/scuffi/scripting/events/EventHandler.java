@@ -0,0 +1,149 @@
+package dev.scuffi.scripting.events;
+
+import org.graalvm.polyglot.Value;
+
+/**
+ * A JavaScript callback registered for an event, together with the script that registered it
+ * and the time spent running it.
+ */
+public final class EventHandler {
+    
+    private final String eventName;
+    private final String scriptName;
+    private final Value callback;
+    private final ScriptProfile profile;
+    private final Schedule schedule;
+    private final EventFilter filter; // May be null
+    private final String asyncSource; // Function source for async handlers, null for ones run on the server thread
+    
+    // Timing, only written from the server thread
+    private long calls;
+    private long totalNanos;
+    private long maxNanos;
+    private int violations;
+    private volatile boolean disabled = false;
+    
+    // Time spent in the current tick, reset lazily like the script's
+    private long tick = -1;
+    private long tickNanos;
+    
+    /**
+     * How often a handler runs.
+     * 
+     * @param interval Run every this many ticks (1 = every tick)
+     * @param staggered Run every tick, but only for the players whose turn it is, so each player
+     *                  is handled once every {@code interval} ticks and the work is spread out
+     */
+    public record Schedule(int interval, boolean staggered) {
+        public static final Schedule EVERY_TICK = new Schedule(1, false);
+        
+        public Schedule {
+            interval = Math.max(1, interval);
+        }
+    }
+    
+    EventHandler(String eventName, String scriptName, Value callback, ScriptProfile profile, Schedule schedule,
+                 EventFilter filter, String asyncSource) {
+        this.eventName = eventName;
+        this.scriptName = scriptName;
+        this.callback = callback;
+        this.profile = profile;
+        this.schedule = schedule;
+        this.filter = filter;
+        this.asyncSource = asyncSource;
+    }
+    
+    public String getEventName() {
+        return eventName;
+    }
+    
+    public String getScriptName() {
+        return scriptName;
+    }
+    
+    public Value getCallback() {
+        return callback;
+    }
+    
+    ScriptProfile getProfile() {
+        return profile;
+    }
+    
+    public Schedule getSchedule() {
+        return schedule;
+    }
+    
+    /**
+     * Gets the filter events must match before this handler is called, or null to receive every event.
+     */
+    public EventFilter getFilter() {
+        return filter;
+    }
+    
+    /**
+     * Checks if this handler was registered with Event.onAsync and runs on the worker pool.
+     */
+    public boolean isAsync() {
+        return asyncSource != null;
+    }
+    
+    String getAsyncSource() {
+        return asyncSource;
+    }
+    
+    void record(long currentTick, long nanos) {
+        if (currentTick != tick) {
+            tick = currentTick;
+            tickNanos = 0;
+        }
+        tickNanos += nanos;
+        calls++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+    
+    /**
+     * Gets the time this handler used in the given tick.
+     */
+    long getTickNanos(long currentTick) {
+        return currentTick == tick ? tickNanos : 0;
+    }
+    
+    /**
+     * Counts a time limit violation.
+     * @return the number of violations so far
+     */
+    int recordViolation() {
+        profile.recordViolation();
+        return ++violations;
+    }
+    
+    void disable() {
+        disabled = true;
+    }
+    
+    /**
+     * Checks if this handler was disabled for repeatedly exceeding its time limit.
+     */
+    public boolean isDisabled() {
+        return disabled;
+    }
+    
+    public long getCalls() {
+        return calls;
+    }
+    
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+    
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+    
+    public int getViolations() {
+        return violations;
+    }
+}
@@ -1,13 +1,18 @@
 package dev.scuffi.scripting.events;
 
 import dev.scuffi.NotEnoughRecipes;
+import dev.scuffi.scripting.api.EffectBuffer;
+import dev.scuffi.scripting.api.WrapperCache;
+import net.fabricmc.fabric.api.event.Event;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerEntityEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
 import net.fabricmc.fabric.api.event.player.*;
 import net.fabricmc.fabric.api.entity.event.v1.ServerLivingEntityEvents;
 import net.fabricmc.fabric.api.entity.event.v1.ServerPlayerEvents;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.minecraft.resources.Identifier;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.InteractionResult;
 import net.minecraft.world.entity.player.Player;
@@ -22,9 +27,43 @@ import net.minecraft.world.phys.EntityHitResult;
 public class EventRegistry {
     
     private static boolean registered = false;
+    private static int boundEvents = 0;
+    private static boolean useBlockEventsRegistered = false;
+    
+    // Event phase that runs after the listeners installed for scripts, which use the default phase
+    private static final Identifier AFTER_SCRIPTS = Identifier.fromNamespaceAndPath(NotEnoughRecipes.MOD_ID, "after_scripts");
+    
+    // Reused by every players_tick fire
+    private static final PlayerListView PLAYER_LIST_VIEW = new PlayerListView();
+    
+    // Contexts of the events that fire many times per tick, reused between fires
+    private static final ContextPool<EventContext.PlayerTickContext> PLAYER_TICK_CONTEXTS =
+            new ContextPool<>(EventContext.PlayerTickContext::new);
+    private static final ContextPool<EventContext.LivingHurtContext> LIVING_HURT_CONTEXTS =
+            new ContextPool<>(EventContext.LivingHurtContext::new);
+    
+    // Channels are resolved once so firing skips the event name lookup
+    private static final EventChannel ITEM_USE = EventBridge.getInstance().channel("item_use");
+    private static final EventChannel BLOCK_BREAK = EventBridge.getInstance().channel("block_break");
+    private static final EventChannel ENTITY_ATTACK = EventBridge.getInstance().channel("entity_attack");
+    private static final EventChannel PLAYER_TICK = EventBridge.getInstance().channel("player_tick");
+    private static final EventChannel PLAYERS_TICK = EventBridge.getInstance().channel("players_tick");
+    private static final EventChannel BLOCK_PLACE = EventBridge.getInstance().channel("block_place");
+    private static final EventChannel ENTITY_INTERACT = EventBridge.getInstance().channel("entity_interact");
+    private static final EventChannel BLOCK_INTERACT = EventBridge.getInstance().channel("block_interact");
+    private static final EventChannel LIVING_HURT = EventBridge.getInstance().channel("living_hurt");
+    private static final EventChannel ENTITY_DEATH = EventBridge.getInstance().channel("entity_death");
+    private static final EventChannel PLAYER_DEATH = EventBridge.getInstance().channel("player_death");
+    private static final EventChannel PLAYER_RESPAWN = EventBridge.getInstance().channel("player_respawn");
+    private static final EventChannel PLAYER_JOIN = EventBridge.getInstance().channel("player_join");
+    private static final EventChannel PLAYER_LEAVE = EventBridge.getInstance().channel("player_leave");
+    private static final EventChannel ITEM_PICKUP = EventBridge.getInstance().channel("item_pickup");
+    private static final EventChannel ITEM_DROP = EventBridge.getInstance().channel("item_drop");
+    private static final EventChannel ITEM_CRAFT = EventBridge.getInstance().channel("item_craft");
+    private static final EventChannel PROJECTILE_HIT = EventBridge.getInstance().channel("projectile_hit");
     
     /**
-     * Registers all Fabric event listeners.
+     * Binds all Fabric event listeners to their channels.
      * This should be called once during mod initialization.
      */
     public static void registerAllEvents() {
@@ -33,35 +72,87 @@ public class EventRegistry {
             return;
         }
         
+        // Listeners are only installed once a script registers a handler for the event
+        
         // Item & Interaction Events
-        registerItemUseEvent();
-        registerItemPickupEvent();
-        registerItemDropEvent();
-        registerItemCraftEvent();
+        bind(ITEM_USE, EventRegistry::registerItemUseEvent);
+        bind(ITEM_PICKUP, EventRegistry::registerItemPickupEvent);
+        bind(ITEM_DROP, EventRegistry::registerItemDropEvent);
+        bind(ITEM_CRAFT, EventRegistry::registerItemCraftEvent);
         
         // Block Events
-        registerBlockBreakEvent();
-        registerBlockPlaceEvent();
-        registerBlockInteractEvent();
+        bind(BLOCK_BREAK, EventRegistry::registerBlockBreakEvent);
+        // Both use UseBlockCallback, so their listeners are installed together to keep block_place first
+        bind(BLOCK_PLACE, EventRegistry::registerUseBlockEvents);
+        bind(BLOCK_INTERACT, EventRegistry::registerUseBlockEvents);
         
         // Entity Events
-        registerEntityAttackEvent();
-        registerEntityInteractEvent();
-        registerLivingHurtEvent();
-        registerEntityDeathEvent();
+        bind(ENTITY_ATTACK, EventRegistry::registerEntityAttackEvent);
+        bind(ENTITY_INTERACT, EventRegistry::registerEntityInteractEvent);
+        bind(LIVING_HURT, EventRegistry::registerLivingHurtEvent);
+        bind(ENTITY_DEATH, EventRegistry::registerEntityDeathEvent);
         
         // Player Events
-        registerPlayerTickEvent();
-        registerPlayerDeathEvent();
-        registerPlayerRespawnEvent();
-        registerPlayerJoinEvent();
-        registerPlayerLeaveEvent();
+        bind(PLAYER_TICK, EventRegistry::registerPlayerTickEvent);
+        bind(PLAYERS_TICK, EventRegistry::registerPlayersTickEvent);
+        bind(PLAYER_DEATH, EventRegistry::registerPlayerDeathEvent);
+        bind(PLAYER_RESPAWN, EventRegistry::registerPlayerRespawnEvent);
+        bind(PLAYER_JOIN, EventRegistry::registerPlayerJoinEvent);
+        bind(PLAYER_LEAVE, EventRegistry::registerPlayerLeaveEvent);
         
         // Projectile Events
-        registerProjectileHitEvent();
+        bind(PROJECTILE_HIT, EventRegistry::registerProjectileHitEvent);
+        
+        // Events whose outcome handlers can change, so they must run on the server thread
+        ITEM_USE.markCancellable();
+        BLOCK_BREAK.markCancellable();
+        BLOCK_PLACE.markCancellable();
+        BLOCK_INTERACT.markCancellable();
+        ENTITY_ATTACK.markCancellable();
+        ENTITY_INTERACT.markCancellable();
+        LIVING_HURT.markCancellable();
+        
+        // Apply world changes queued by async handlers, then send the tick's buffered particles and sounds.
+        // Runs after the tick listeners installed for scripts, so their effects go out this tick
+        ServerTickEvents.END_SERVER_TICK.addPhaseOrdering(Event.DEFAULT_PHASE, AFTER_SCRIPTS);
+        ServerTickEvents.END_SERVER_TICK.register(AFTER_SCRIPTS, server -> {
+            EventBridge.getInstance().applyAsyncCommands(server);
+            EffectBuffer.flushAll();
+        });
+        
+        // Drop cached wrappers and effect buffers of players and levels that are gone
+        // Players are dropped after player_leave handlers ran, so they don't create a new wrapper that's never dropped
+        ServerPlayConnectionEvents.DISCONNECT.addPhaseOrdering(Event.DEFAULT_PHASE, AFTER_SCRIPTS);
+        ServerPlayConnectionEvents.DISCONNECT.register(AFTER_SCRIPTS, (handler, server) -> WrapperCache.invalidate(handler.getPlayer()));
+        // Respawning replaces the player object; player_death handlers still wrap the old one
+        ServerPlayerEvents.AFTER_RESPAWN.addPhaseOrdering(Event.DEFAULT_PHASE, AFTER_SCRIPTS);
+        ServerPlayerEvents.AFTER_RESPAWN.register(AFTER_SCRIPTS, (oldPlayer, newPlayer, alive) -> WrapperCache.invalidate(oldPlayer));
+        ServerWorldEvents.UNLOAD.register((server, world) -> WrapperCache.invalidate(world));
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+            WrapperCache.clear();
+            EffectBuffer.clear();
+        });
         
         registered = true;
-        NotEnoughRecipes.LOGGER.info("Registered {} JavaScript event listeners", 16);
+        NotEnoughRecipes.LOGGER.info("Bound {} JavaScript events, listeners install on first handler", boundEvents);
+    }
+    
+    private static void bind(EventChannel channel, Runnable installer) {
+        channel.bindListener(installer);
+        boundEvents++;
+    }
+    
+    /**
+     * Installs the block_place and block_interact listeners, whichever of the two gets a handler first.
+     * A placement cancelled by a block_place handler doesn't reach block_interact.
+     */
+    private static synchronized void registerUseBlockEvents() {
+        if (useBlockEventsRegistered) {
+            return;
+        }
+        useBlockEventsRegistered = true;
+        registerBlockPlaceEvent();
+        registerBlockInteractEvent();
     }
     
     /**
@@ -70,11 +161,15 @@ public class EventRegistry {
      */
     private static void registerItemUseEvent() {
         UseItemCallback.EVENT.register((player, world, hand) -> {
+            if (!ITEM_USE.isArmed()) {
+                return InteractionResult.PASS;
+            }
+            
             try {
                 var itemStack = player.getItemInHand(hand);
                 var context = new EventContext.ItemUseContext(player, world, itemStack, hand);
                 
-                EventBridge.getInstance().fireEvent("item_use", context);
+                EventBridge.getInstance().fireEvent(ITEM_USE, context);
                 
                 // Handle result if script set one
                 if (context.result != null) {
@@ -104,10 +199,14 @@ public class EventRegistry {
      */
     private static void registerBlockBreakEvent() {
         PlayerBlockBreakEvents.BEFORE.register((world, player, pos, state, blockEntity) -> {
+            if (!BLOCK_BREAK.isArmed()) {
+                return true;
+            }
+            
             try {
                 var context = new EventContext.BlockBreakContext(player, world, pos, state);
                 
-                EventBridge.getInstance().fireEvent("block_break", context);
+                EventBridge.getInstance().fireEvent(BLOCK_BREAK, context);
                 
                 // If cancelled, prevent the break
                 if (context.cancelled) {
@@ -127,10 +226,14 @@ public class EventRegistry {
      */
     private static void registerEntityAttackEvent() {
         AttackEntityCallback.EVENT.register((player, world, hand, entity, hitResult) -> {
+            if (!ENTITY_ATTACK.isArmed()) {
+                return InteractionResult.PASS;
+            }
+            
             try {
                 var context = new EventContext.EntityAttackContext(player, world, entity);
                 
-                EventBridge.getInstance().fireEvent("entity_attack", context);
+                EventBridge.getInstance().fireEvent(ENTITY_ATTACK, context);
                 
                 // If cancelled, prevent the attack
                 if (context.cancelled) {
@@ -150,11 +253,20 @@ public class EventRegistry {
      */
     private static void registerPlayerTickEvent() {
         ServerTickEvents.END_SERVER_TICK.register(server -> {
+            if (!PLAYER_TICK.isArmed()) {
+                return;
+            }
+            
             try {
                 // Fire tick event for each player
                 for (ServerPlayer player : server.getPlayerList().getPlayers()) {
-                    var context = new EventContext.PlayerTickContext(player);
-                    EventBridge.getInstance().fireEvent("player_tick", context);
+                    var context = PLAYER_TICK_CONTEXTS.acquire();
+                    try {
+                        context.reset(player);
+                        EventBridge.getInstance().fireEvent(PLAYER_TICK, context);
+                    } finally {
+                        PLAYER_TICK_CONTEXTS.release(context);
+                    }
                 }
             } catch (Exception e) {
                 NotEnoughRecipes.LOGGER.error("Error in player_tick event: {}", e.getMessage());
@@ -162,12 +274,40 @@ public class EventRegistry {
         });
     }
     
+    /**
+     * Registers the batched players tick event.
+     * Fires once per tick with every online player, so each handler crosses into JavaScript
+     * once per tick instead of once per player.
+     */
+    private static void registerPlayersTickEvent() {
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            if (!PLAYERS_TICK.isArmed()) {
+                return;
+            }
+            
+            try {
+                PLAYER_LIST_VIEW.update(server.getPlayerList().getPlayers());
+                var context = new EventContext.PlayersTickContext(PLAYER_LIST_VIEW, server.getTickCount());
+                EventBridge.getInstance().fireEvent(PLAYERS_TICK, context);
+            } catch (Exception e) {
+                NotEnoughRecipes.LOGGER.error("Error in players_tick event: {}", e.getMessage());
+            }
+        });
+        
+        // Don't keep players from a stopped server reachable
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> PLAYER_LIST_VIEW.clear());
+    }
+    
     /**
      * Registers the block place event.
      * Fires when a player places a block (using UseBlockCallback as approximation).
      */
     private static void registerBlockPlaceEvent() {
         UseBlockCallback.EVENT.register((player, world, hand, hitResult) -> {
+            if (!BLOCK_PLACE.isArmed()) {
+                return InteractionResult.PASS;
+            }
+            
             try {
                 var pos = hitResult.getBlockPos().relative(hitResult.getDirection());
                 var itemStack = player.getItemInHand(hand);
@@ -176,7 +316,7 @@ public class EventRegistry {
                 if (!itemStack.isEmpty() && itemStack.getItem() instanceof net.minecraft.world.item.BlockItem) {
                     var state = world.getBlockState(pos);
                     var context = new EventContext.BlockPlacedContext(player, world, pos, state, itemStack);
-                    EventBridge.getInstance().fireEvent("block_place", context);
+                    EventBridge.getInstance().fireEvent(BLOCK_PLACE, context);
                     
                     if (context.cancelled) {
                         return InteractionResult.FAIL;
@@ -227,9 +367,13 @@ public class EventRegistry {
      */
     private static void registerEntityInteractEvent() {
         UseEntityCallback.EVENT.register((player, world, hand, entity, hitResult) -> {
+            if (!ENTITY_INTERACT.isArmed()) {
+                return InteractionResult.PASS;
+            }
+            
             try {
                 var context = new EventContext.EntityInteractContext(player, world, entity, hand);
-                EventBridge.getInstance().fireEvent("entity_interact", context);
+                EventBridge.getInstance().fireEvent(ENTITY_INTERACT, context);
                 
                 if (context.cancelled) {
                     return InteractionResult.FAIL;
@@ -248,13 +392,17 @@ public class EventRegistry {
      */
     private static void registerBlockInteractEvent() {
         UseBlockCallback.EVENT.register((player, world, hand, hitResult) -> {
+            if (!BLOCK_INTERACT.isArmed()) {
+                return InteractionResult.PASS;
+            }
+            
             try {
                 var pos = hitResult.getBlockPos();
                 var state = world.getBlockState(pos);
                 var face = hitResult.getDirection().getName();
                 
                 var context = new EventContext.BlockInteractContext(player, world, pos, state, hand, face);
-                EventBridge.getInstance().fireEvent("block_interact", context);
+                EventBridge.getInstance().fireEvent(BLOCK_INTERACT, context);
                 
                 if (context.cancelled) {
                     return InteractionResult.FAIL;
@@ -273,16 +421,25 @@ public class EventRegistry {
      */
     private static void registerLivingHurtEvent() {
         ServerLivingEntityEvents.ALLOW_DAMAGE.register((entity, source, amount) -> {
+            if (!LIVING_HURT.isArmed()) {
+                return true;
+            }
+            
             try {
                 var world = entity.level();
                 var attacker = source.getEntity() instanceof Player p ? p : null;
                 var damageSourceName = source.getMsgId();
                 
-                var context = new EventContext.LivingHurtContext(entity, world, amount, damageSourceName, attacker);
-                EventBridge.getInstance().fireEvent("living_hurt", context);
-                
-                // If cancelled, prevent damage
-                return !context.cancelled;
+                var context = LIVING_HURT_CONTEXTS.acquire();
+                try {
+                    context.reset(entity, world, amount, damageSourceName, attacker);
+                    EventBridge.getInstance().fireEvent(LIVING_HURT, context);
+                    
+                    // If cancelled, prevent damage
+                    return !context.cancelled;
+                } finally {
+                    LIVING_HURT_CONTEXTS.release(context);
+                }
             } catch (Exception e) {
                 NotEnoughRecipes.LOGGER.error("Error in living_hurt event: {}", e.getMessage());
             }
@@ -297,13 +454,17 @@ public class EventRegistry {
      */
     private static void registerEntityDeathEvent() {
         ServerLivingEntityEvents.AFTER_DEATH.register((entity, source) -> {
+            if (!ENTITY_DEATH.isArmed()) {
+                return;
+            }
+            
             try {
                 var world = entity.level();
                 var killer = source.getEntity() instanceof Player p ? p : null;
                 var damageSourceName = source.getMsgId();
                 
                 var context = new EventContext.EntityDeathContext(entity, world, damageSourceName, killer);
-                EventBridge.getInstance().fireEvent("entity_death", context);
+                EventBridge.getInstance().fireEvent(ENTITY_DEATH, context);
             } catch (Exception e) {
                 NotEnoughRecipes.LOGGER.error("Error in entity_death event: {}", e.getMessage());
             }
@@ -316,14 +477,14 @@ public class EventRegistry {
      */
     private static void registerPlayerDeathEvent() {
         ServerPlayerEvents.AFTER_RESPAWN.register((oldPlayer, newPlayer, alive) -> {
-            if (!alive) {
+            if (!alive && PLAYER_DEATH.isArmed()) {
                 try {
                     var world = oldPlayer.level();
                     var damageSourceName = oldPlayer.getLastDamageSource() != null ? 
                             oldPlayer.getLastDamageSource().getMsgId() : "unknown";
                     
                     var context = new EventContext.PlayerDeathContext(oldPlayer, world, damageSourceName);
-                    EventBridge.getInstance().fireEvent("player_death", context);
+                    EventBridge.getInstance().fireEvent(PLAYER_DEATH, context);
                 } catch (Exception e) {
                     NotEnoughRecipes.LOGGER.error("Error in player_death event: {}", e.getMessage());
                 }
@@ -337,13 +498,13 @@ public class EventRegistry {
      */
     private static void registerPlayerRespawnEvent() {
         ServerPlayerEvents.AFTER_RESPAWN.register((oldPlayer, newPlayer, alive) -> {
-            if (alive) {
+            if (alive && PLAYER_RESPAWN.isArmed()) {
                 try {
                     var world = newPlayer.level();
                     var conqueredEnd = false; // Would need to check dimension change
                     
                     var context = new EventContext.PlayerRespawnContext(newPlayer, world, conqueredEnd);
-                    EventBridge.getInstance().fireEvent("player_respawn", context);
+                    EventBridge.getInstance().fireEvent(PLAYER_RESPAWN, context);
                 } catch (Exception e) {
                     NotEnoughRecipes.LOGGER.error("Error in player_respawn event: {}", e.getMessage());
                 }
@@ -357,12 +518,16 @@ public class EventRegistry {
      */
     private static void registerPlayerJoinEvent() {
         ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+            if (!PLAYER_JOIN.isArmed()) {
+                return;
+            }
+            
             try {
                 var player = handler.getPlayer();
                 var world = player.level();
                 
                 var context = new EventContext.PlayerJoinContext(player, world);
-                EventBridge.getInstance().fireEvent("player_join", context);
+                EventBridge.getInstance().fireEvent(PLAYER_JOIN, context);
             } catch (Exception e) {
                 NotEnoughRecipes.LOGGER.error("Error in player_join event: {}", e.getMessage());
             }
@@ -375,12 +540,16 @@ public class EventRegistry {
      */
     private static void registerPlayerLeaveEvent() {
         ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            if (!PLAYER_LEAVE.isArmed()) {
+                return;
+            }
+            
             try {
                 var player = handler.getPlayer();
                 var world = player.level();
                 
                 var context = new EventContext.PlayerLeaveContext(player, world);
-                EventBridge.getInstance().fireEvent("player_leave", context);
+                EventBridge.getInstance().fireEvent(PLAYER_LEAVE, context);
             } catch (Exception e) {
                 NotEnoughRecipes.LOGGER.error("Error in player_leave event: {}", e.getMessage());
             }
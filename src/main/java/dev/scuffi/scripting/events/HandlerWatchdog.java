@@ -0,0 +1,118 @@
+package dev.scuffi.scripting.events;
+
+import dev.scuffi.NotEnoughRecipes;
+import org.graalvm.polyglot.Value;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Interrupts JavaScript handlers that run past their deadline.
+ * 
+ * The server thread publishes the handler it is about to call and its deadline; a daemon
+ * thread polls that slot and calls {@code Context.interrupt} once the deadline passes. While
+ * no handler is running the daemon sleeps until {@link #begin} wakes it. The
+ * interrupted handler throws a {@link org.graalvm.polyglot.PolyglotException} with
+ * {@code isInterrupted()} set, and its context stays usable for later calls.
+ */
+final class HandlerWatchdog {
+    
+    private static final long POLL_NANOS = 1_000_000L;
+    private static final Duration INTERRUPT_WAIT = Duration.ofSeconds(1);
+    
+    // Handler in flight, or null when the server thread isn't running JavaScript
+    private volatile Value running;
+    private volatile long deadline;
+    private volatile long callId;
+    
+    private volatile Thread thread;
+    // Set while the watcher is parked with no handler to watch, so begin() knows to wake it
+    private volatile boolean idle;
+    
+    synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        
+        Thread watcher = new Thread(this::run, "NER-HandlerWatchdog");
+        watcher.setDaemon(true);
+        thread = watcher;
+        watcher.start();
+    }
+    
+    synchronized void stop() {
+        Thread watcher = thread;
+        thread = null;
+        if (watcher != null) {
+            LockSupport.unpark(watcher);
+        }
+    }
+    
+    /**
+     * Marks the start of a handler call.
+     * Nested calls (a handler firing another event) run under the outer call's deadline.
+     * 
+     * @return true if this call is watched and {@link #end()} must be called
+     */
+    boolean begin(Value callback, long deadlineNanos) {
+        if (running != null || thread == null) {
+            return false;
+        }
+        callId++;
+        deadline = deadlineNanos;
+        running = callback;
+        if (idle) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+    
+    void end() {
+        running = null;
+    }
+    
+    private void run() {
+        while (thread == Thread.currentThread()) {
+            Value callback = running;
+            long id = callId;
+            if (callback == null) {
+                // Checked again after setting idle, so a call published in between isn't missed
+                idle = true;
+                if (running == null && thread == Thread.currentThread()) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                continue;
+            }
+            
+            long wait = deadline - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(Math.min(wait, POLL_NANOS));
+                continue;
+            }
+            
+            // The call may have finished between reading the slot and now
+            if (running == callback && callId == id) {
+                interrupt(callback);
+            }
+            
+            // Don't interrupt the same call twice
+            while (running == callback && callId == id && thread == Thread.currentThread()) {
+                LockSupport.parkNanos(POLL_NANOS);
+            }
+        }
+    }
+    
+    private void interrupt(Value callback) {
+        try {
+            callback.getContext().interrupt(INTERRUPT_WAIT);
+        } catch (TimeoutException e) {
+            NotEnoughRecipes.LOGGER.warn("JavaScript handler did not stop within {} ms of being interrupted",
+                    INTERRUPT_WAIT.toMillis());
+        } catch (Exception e) {
+            // Context was closed while the handler was running
+            NotEnoughRecipes.LOGGER.debug("Failed to interrupt JavaScript handler: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package dev.scuffi.scripting.events;
+
+import dev.scuffi.scripting.api.PlayerWrapper;
+import dev.scuffi.scripting.api.WrapperCache;
+import net.minecraft.server.level.ServerPlayer;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyArray;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only JavaScript array of the online players, reused across ticks.
+ * 
+ * Wrappers are kept between ticks and only looked up again when the player in a slot changes,
+ * so a stable player list costs no allocation or map lookup per tick. Staggered handlers see a subset
+ * selected with {@link #select(int, int)}.
+ */
+public final class PlayerListView implements ProxyArray {
+    
+    private List<ServerPlayer> players = List.of();
+    
+    // Wrapper cache, parallel to the player list
+    private ServerPlayer[] wrappedPlayers = new ServerPlayer[0];
+    private PlayerWrapper[] wrappers = new PlayerWrapper[0];
+    
+    // Indices into the player list that are visible, used while a stagger slot is selected
+    private int[] selected = new int[0];
+    private int selectedCount = -1;
+    
+    /**
+     * Points the view at this tick's player list and clears any stagger selection.
+     */
+    public void update(List<ServerPlayer> players) {
+        this.players = players;
+        this.selectedCount = -1;
+        
+        int size = players.size();
+        if (wrappers.length < size) {
+            int capacity = Math.max(size, wrappers.length * 2);
+            wrappedPlayers = Arrays.copyOf(wrappedPlayers, capacity);
+            wrappers = Arrays.copyOf(wrappers, capacity);
+            selected = new int[capacity];
+        }
+        
+        // Drop wrappers of players who left
+        Arrays.fill(wrappedPlayers, size, wrappedPlayers.length, null);
+        Arrays.fill(wrappers, size, wrappers.length, null);
+    }
+    
+    /**
+     * Shows only the players in the given stagger slot, or every player when the interval is 1.
+     * 
+     * @return the number of visible players
+     */
+    int select(int interval, int slot) {
+        if (interval <= 1) {
+            selectedCount = -1;
+            return players.size();
+        }
+        
+        int count = 0;
+        for (int i = 0; i < players.size(); i++) {
+            if (EventContext.staggerSlot(players.get(i), interval) == slot) {
+                selected[count++] = i;
+            }
+        }
+        selectedCount = count;
+        return count;
+    }
+    
+    /**
+     * Gets every online player in this tick, ignoring any stagger selection.
+     */
+    List<ServerPlayer> getPlayers() {
+        return players;
+    }
+    
+    /**
+     * Releases the player references so the view doesn't keep disconnected players alive.
+     */
+    public void clear() {
+        players = List.of();
+        selectedCount = -1;
+        Arrays.fill(wrappedPlayers, null);
+        Arrays.fill(wrappers, null);
+    }
+    
+    @Override
+    public Object get(long index) {
+        int size = (int) getSize();
+        if (index < 0 || index >= size) {
+            throw new ArrayIndexOutOfBoundsException((int) index);
+        }
+        
+        int i = selectedCount < 0 ? (int) index : selected[(int) index];
+        ServerPlayer player = players.get(i);
+        if (wrappedPlayers[i] != player) {
+            wrappedPlayers[i] = player;
+            wrappers[i] = WrapperCache.player(player);
+        }
+        return wrappers[i];
+    }
+    
+    @Override
+    public void set(long index, Value value) {
+        throw new UnsupportedOperationException("The player list is read-only");
+    }
+    
+    @Override
+    public long getSize() {
+        return selectedCount < 0 ? players.size() : selectedCount;
+    }
+}
@@ -0,0 +1,100 @@
+package dev.scuffi.scripting.events;
+
+/**
+ * Execution time spent in one script's event handlers.
+ * Only written from the server thread; readers such as the profile command may see slightly stale values.
+ */
+public final class ScriptProfile {
+    
+    private final String scriptName;
+    
+    private long calls;
+    private long totalNanos;
+    private long skippedCalls;
+    private int violations;
+    
+    // Time spent in the current tick, reset lazily when a call happens in a later tick
+    private long tick = -1;
+    private long tickNanos;
+    private long maxTickNanos;
+    // Handler that used the most time in the current tick
+    private EventHandler heaviestHandler;
+    private long heaviestNanos;
+    
+    ScriptProfile(String scriptName) {
+        this.scriptName = scriptName;
+    }
+    
+    /**
+     * Gets how much of the per-tick budget this script has left in the given tick.
+     */
+    long remainingBudget(long currentTick, long budgetNanos) {
+        return currentTick == tick ? budgetNanos - tickNanos : budgetNanos;
+    }
+    
+    void record(long currentTick, long nanos, EventHandler handler) {
+        if (currentTick != tick) {
+            tick = currentTick;
+            tickNanos = 0;
+            heaviestHandler = null;
+            heaviestNanos = 0;
+        }
+        tickNanos += nanos;
+        long handlerNanos = handler.getTickNanos(currentTick);
+        if (heaviestHandler == null || handlerNanos > heaviestNanos) {
+            heaviestHandler = handler;
+            heaviestNanos = handlerNanos;
+        }
+        if (tickNanos > maxTickNanos) {
+            maxTickNanos = tickNanos;
+        }
+        calls++;
+        totalNanos += nanos;
+    }
+    
+    /**
+     * Gets the handler that used the most of this script's budget in the current tick.
+     * Only valid right after {@link #record} for that tick.
+     */
+    EventHandler getHeaviestHandler() {
+        return heaviestHandler;
+    }
+    
+    void recordSkipped() {
+        skippedCalls++;
+    }
+    
+    void recordViolation() {
+        violations++;
+    }
+    
+    public String getScriptName() {
+        return scriptName;
+    }
+    
+    public long getCalls() {
+        return calls;
+    }
+    
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+    
+    /**
+     * Gets the most time this script's handlers have used within a single tick.
+     */
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+    
+    /**
+     * Gets the number of handler calls skipped because the script had used up its tick budget.
+     */
+    public long getSkippedCalls() {
+        return skippedCalls;
+    }
+    
+    public int getViolations() {
+        return violations;
+    }
+}